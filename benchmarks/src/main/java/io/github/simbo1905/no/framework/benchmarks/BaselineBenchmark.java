@@ -0,0 +1,130 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.benchmarks;
+
+import io.github.simbo1905.no.framework.Pickler;
+import io.github.simbo1905.no.framework.model.Person;
+import io.github.simbo1905.no.framework.tree.InternalNode;
+import io.github.simbo1905.no.framework.tree.LeafNode;
+import io.github.simbo1905.no.framework.tree.TreeNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/// Compares a round trip through a pickler with Java serialization and with a hand-written `DataOutputStream`
+/// codec that is the fastest that plain Java can do for the same shape. Java serialization requires
+/// [Serializable] which the test models do not implement so it round trips copies of the same shape.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BaselineBenchmark {
+
+  record JavaPerson(String name, int age) implements Serializable {
+  }
+
+  sealed interface JavaTree extends Serializable permits JavaInternal, JavaLeaf {
+  }
+
+  record JavaInternal(String name, JavaTree left, JavaTree right) implements JavaTree {
+  }
+
+  record JavaLeaf(int value) implements JavaTree {
+  }
+
+  final Pickler<Person> personPickler = Pickler.forRecord(Person.class);
+  final Pickler<TreeNode> treePickler = Pickler.forSealedInterface(TreeNode.class);
+
+  final Person person = Models.person();
+  final TreeNode tree = Models.tree(6);
+  final JavaPerson javaPerson = new JavaPerson(person.name(), person.age());
+  final JavaTree javaTree = mirror(tree);
+
+  final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+  final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+
+  static JavaTree mirror(TreeNode node) {
+    return switch (node) {
+      case LeafNode leaf -> new JavaLeaf(leaf.value());
+      case InternalNode internal -> new JavaInternal(internal.name(), mirror(internal.left()), mirror(internal.right()));
+    };
+  }
+
+  @Benchmark
+  public Person personPickler() {
+    personPickler.serialize(person, buffer.clear());
+    return personPickler.deserialize(buffer.flip());
+  }
+
+  @Benchmark
+  public Object personJavaSerialization() throws IOException, ClassNotFoundException {
+    return javaRoundTrip(javaPerson);
+  }
+
+  @Benchmark
+  public Person personDataStream() throws IOException {
+    bytes.reset();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.writeUTF(person.name());
+    out.writeInt(person.age());
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    return new Person(in.readUTF(), in.readInt());
+  }
+
+  @Benchmark
+  public TreeNode treePickler() {
+    treePickler.serialize(tree, buffer.clear());
+    return treePickler.deserialize(buffer.flip());
+  }
+
+  @Benchmark
+  public Object treeJavaSerialization() throws IOException, ClassNotFoundException {
+    return javaRoundTrip(javaTree);
+  }
+
+  @Benchmark
+  public TreeNode treeDataStream() throws IOException {
+    bytes.reset();
+    writeTree(new DataOutputStream(bytes), tree);
+    return readTree(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+
+  Object javaRoundTrip(Object value) throws IOException, ClassNotFoundException {
+    bytes.reset();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(value);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return in.readObject();
+    }
+  }
+
+  static void writeTree(DataOutputStream out, TreeNode node) throws IOException {
+    switch (node) {
+      case null -> out.writeByte(0);
+      case LeafNode leaf -> {
+        out.writeByte(1);
+        out.writeInt(leaf.value());
+      }
+      case InternalNode internal -> {
+        out.writeByte(2);
+        out.writeUTF(internal.name());
+        writeTree(out, internal.left());
+        writeTree(out, internal.right());
+      }
+    }
+  }
+
+  static TreeNode readTree(DataInputStream in) throws IOException {
+    return switch (in.readByte()) {
+      case 0 -> null;
+      case 1 -> new LeafNode(in.readInt());
+      case 2 -> new InternalNode(in.readUTF(), readTree(in), readTree(in));
+      default -> throw new IOException("Unknown tree node tag");
+    };
+  }
+}
@@ -0,0 +1,114 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.benchmarks;
+
+import io.github.simbo1905.no.framework.Pickler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/// Measures the time for many threads that all start at once to obtain the picklers of a protocol that no thread
+/// has used yet, as happens in the first seconds after a deploy. Picklers are cached against their class so each
+/// iteration loads the model classes afresh in a new class loader.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColdStartBenchmark {
+
+  static final List<String> ROOTS = List.of(
+      "io.github.simbo1905.no.framework.animal.Animal",
+      "io.github.simbo1905.no.framework.protocol.StackCommand",
+      "io.github.simbo1905.no.framework.protocol.StackResponse");
+
+  @Param({"1", "8", "64"})
+  int threads;
+
+  ExecutorService pool;
+  List<Class<?>> roots;
+
+  @Setup(Level.Trial)
+  public void startPool() {
+    pool = Executors.newFixedThreadPool(threads);
+  }
+
+  @TearDown(Level.Trial)
+  public void stopPool() {
+    pool.shutdown();
+  }
+
+  @Setup(Level.Iteration)
+  public void freshClasses() {
+    final ClassLoader loader = new FreshLoader(getClass().getClassLoader());
+    roots = ROOTS.stream().<Class<?>>map(name -> {
+      try {
+        return loader.loadClass(name);
+      } catch (ClassNotFoundException e) {
+        throw new IllegalStateException(e);
+      }
+    }).toList();
+  }
+
+  @Benchmark
+  public void concurrentCreation() throws Exception {
+    final CyclicBarrier start = new CyclicBarrier(threads);
+    final List<Future<?>> futures = IntStream.range(0, threads).<Future<?>>mapToObj(i -> pool.submit(() -> {
+      start.await();
+      for (Class<?> root : roots) {
+        Pickler.forSealedInterface(root);
+        permittedRecords(root).forEach(Pickler::forRecord);
+      }
+      return null;
+    })).toList();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+  }
+
+  static Stream<Class<? extends Record>> permittedRecords(Class<?> sealed) {
+    return Stream.of(sealed.getPermittedSubclasses())
+        .flatMap(c -> c.isRecord() ? Stream.of(c.asSubclass(Record.class)) : permittedRecords(c));
+  }
+
+  /// Loads the model packages itself so that their classes are new to the registry.
+  static final class FreshLoader extends ClassLoader {
+
+    FreshLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (!name.startsWith("io.github.simbo1905.no.framework.animal.") &&
+          !name.startsWith("io.github.simbo1905.no.framework.protocol.")) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (getClassLoadingLock(name)) {
+        final Class<?> loaded = findLoadedClass(name);
+        if (loaded != null) {
+          return loaded;
+        }
+        try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+          if (in == null) {
+            throw new ClassNotFoundException(name);
+          }
+          final byte[] bytes = in.readAllBytes();
+          return defineClass(name, bytes, 0, bytes.length);
+        } catch (IOException e) {
+          throw new ClassNotFoundException(name, e);
+        }
+      }
+    }
+  }
+}
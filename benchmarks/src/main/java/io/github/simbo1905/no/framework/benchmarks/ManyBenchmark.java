@@ -0,0 +1,53 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.benchmarks;
+
+import io.github.simbo1905.no.framework.Pickler;
+import io.github.simbo1905.no.framework.model.Person;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/// Measures the helpers that write and read an array of records.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ManyBenchmark {
+
+  @Param({"10", "1000"})
+  int count;
+
+  Person[] people;
+  ByteBuffer scratch;
+  ByteBuffer peopleBytes;
+
+  @Setup
+  public void setup() {
+    people = Models.people(count);
+    scratch = ByteBuffer.allocate(Pickler.sizeOfMany(people));
+    peopleBytes = ByteBuffer.allocate(Pickler.sizeOfMany(people));
+    Pickler.serializeMany(people, peopleBytes);
+    peopleBytes.flip();
+  }
+
+  @Benchmark
+  public ByteBuffer serializeMany() {
+    Pickler.serializeMany(people, scratch.clear());
+    return scratch;
+  }
+
+  @Benchmark
+  public List<Person> deserializeMany() {
+    return Pickler.deserializeMany(Person.class, peopleBytes.rewind());
+  }
+
+  @Benchmark
+  public int sizeOfMany() {
+    return Pickler.sizeOfMany(people);
+  }
+}
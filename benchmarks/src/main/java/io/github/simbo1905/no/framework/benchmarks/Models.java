@@ -0,0 +1,73 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.benchmarks;
+
+import io.github.simbo1905.no.framework.animal.*;
+import io.github.simbo1905.no.framework.model.ArrayExample;
+import io.github.simbo1905.no.framework.model.Person;
+import io.github.simbo1905.no.framework.protocol.*;
+import io.github.simbo1905.no.framework.tree.InternalNode;
+import io.github.simbo1905.no.framework.tree.LeafNode;
+import io.github.simbo1905.no.framework.tree.TreeNode;
+
+import java.util.stream.IntStream;
+
+/// The benchmark data which is built from the test models of the core project so that the numbers describe the
+/// same shapes that the tests cover. Every instance is fixed so that runs are comparable.
+final class Models {
+
+  private Models() {
+  }
+
+  static Person person() {
+    return new Person("Alice", 30);
+  }
+
+  static Person[] people(int count) {
+    final Person[] people = new Person[count];
+    IntStream.range(0, count).forEach(i -> people[i] = new Person("Person " + i, 20 + i % 50));
+    return people;
+  }
+
+  static ArrayExample arrays() {
+    return new ArrayExample(
+        new int[]{1, 2, 3, 4, 5},
+        new String[]{"one", "two", "three"},
+        new boolean[]{true, false, true},
+        people(3),
+        new Integer[]{10, 20, 30},
+        new Object[]{1, "two", 3.0}
+    );
+  }
+
+  /// A complete binary tree where the leaves are numbered from left to right.
+  static TreeNode tree(int depth) {
+    return tree(depth, new int[]{0});
+  }
+
+  private static TreeNode tree(int depth, int[] next) {
+    if (depth == 0) {
+      return new LeafNode(next[0]++);
+    }
+    return new InternalNode("node" + depth, tree(depth - 1, next), tree(depth - 1, next));
+  }
+
+  static Animal[] animals() {
+    return new Animal[]{
+        new Dog("Fido", 2),
+        new Cat("Felix", true),
+        new Eagle(2.1),
+        new Penguin(true),
+        new Alicorn("Twilight", new String[]{"elements of harmony", "wings of a pegasus"})
+    };
+  }
+
+  static StackCommand[] commands() {
+    return new StackCommand[]{new Push("hello"), new Peek(), new Pop(), new Push("world"), new Pop()};
+  }
+
+  static StackResponse[] responses() {
+    return new StackResponse[]{new Success(java.util.Optional.of("hello")), new Success(java.util.Optional.empty()),
+        new Failure("stack is empty")};
+  }
+}
@@ -0,0 +1,98 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.benchmarks;
+
+import io.github.simbo1905.no.framework.Pickler;
+import io.github.simbo1905.no.framework.model.ArrayExample;
+import io.github.simbo1905.no.framework.model.Person;
+import io.github.simbo1905.no.framework.tree.TreeNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/// Measures `serialize`, `deserialize` and `sizeOf` of a flat record, a record of arrays and a tree of records.
+/// Buffers are allocated once so that only the pickler is measured.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordBenchmark {
+
+  final Pickler<Person> personPickler = Pickler.forRecord(Person.class);
+  final Pickler<ArrayExample> arraysPickler = Pickler.forRecord(ArrayExample.class);
+  final Pickler<TreeNode> treePickler = Pickler.forSealedInterface(TreeNode.class);
+
+  final Person person = Models.person();
+  final ArrayExample arrays = Models.arrays();
+  final TreeNode tree = Models.tree(6);
+
+  ByteBuffer scratch;
+  ByteBuffer personBytes;
+  ByteBuffer arraysBytes;
+  ByteBuffer treeBytes;
+
+  @Setup
+  public void setup() {
+    scratch = ByteBuffer.allocate(treePickler.sizeOf(tree) + arraysPickler.sizeOf(arrays) + personPickler.sizeOf(person));
+    personBytes = written(personPickler, person);
+    arraysBytes = written(arraysPickler, arrays);
+    treeBytes = written(treePickler, tree);
+  }
+
+  static <T> ByteBuffer written(Pickler<T> pickler, T value) {
+    final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(value));
+    pickler.serialize(value, buffer);
+    return buffer.flip();
+  }
+
+  @Benchmark
+  public ByteBuffer serializePerson() {
+    personPickler.serialize(person, scratch.clear());
+    return scratch;
+  }
+
+  @Benchmark
+  public Person deserializePerson() {
+    return personPickler.deserialize(personBytes.rewind());
+  }
+
+  @Benchmark
+  public int sizeOfPerson() {
+    return personPickler.sizeOf(person);
+  }
+
+  @Benchmark
+  public ByteBuffer serializeArrays() {
+    arraysPickler.serialize(arrays, scratch.clear());
+    return scratch;
+  }
+
+  @Benchmark
+  public ArrayExample deserializeArrays() {
+    return arraysPickler.deserialize(arraysBytes.rewind());
+  }
+
+  @Benchmark
+  public int sizeOfArrays() {
+    return arraysPickler.sizeOf(arrays);
+  }
+
+  @Benchmark
+  public ByteBuffer serializeTree() {
+    treePickler.serialize(tree, scratch.clear());
+    return scratch;
+  }
+
+  @Benchmark
+  public TreeNode deserializeTree() {
+    return treePickler.deserialize(treeBytes.rewind());
+  }
+
+  @Benchmark
+  public int sizeOfTree() {
+    return treePickler.sizeOf(tree);
+  }
+}
@@ -0,0 +1,48 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.benchmarks;
+
+import io.github.simbo1905.no.framework.Pickler;
+import io.github.simbo1905.no.framework.model.Person;
+import io.github.simbo1905.no.framework.tree.TreeNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/// Round trips through picklers that every thread shares. Writing a tree looks up the pickler of every nested record
+/// and `deserializeMany` looks one up per element so both touch the registry on every call. Run it with
+/// [ScalingRunner] to compare the throughput from one thread up to every core.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalingBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Shared {
+    final Pickler<TreeNode> treePickler = Pickler.forSealedInterface(TreeNode.class);
+    final TreeNode tree = Models.tree(4);
+    final Person[] people = Models.people(32);
+  }
+
+  @State(Scope.Thread)
+  public static class Buffers {
+    final ByteBuffer tree = ByteBuffer.allocate(16 * 1024);
+    final ByteBuffer many = ByteBuffer.allocate(16 * 1024);
+  }
+
+  @Benchmark
+  public TreeNode roundTripTree(Shared shared, Buffers buffers) {
+    shared.treePickler.serialize(shared.tree, buffers.tree.clear());
+    return shared.treePickler.deserialize(buffers.tree.flip());
+  }
+
+  @Benchmark
+  public List<Person> roundTripMany(Shared shared, Buffers buffers) {
+    Pickler.serializeMany(shared.people, buffers.many.clear());
+    return Pickler.deserializeMany(Person.class, buffers.many.flip());
+  }
+}
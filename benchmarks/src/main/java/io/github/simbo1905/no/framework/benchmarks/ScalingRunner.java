@@ -0,0 +1,49 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.benchmarks;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/// Runs [ScalingBenchmark] with 1, 2, 4 and so on platform threads up to the number of cores, or the first argument,
+/// and prints the speedup over one thread and the efficiency which is the speedup divided by the thread count.
+/// Efficiency that falls well below one as threads are added points at contention on shared state.
+///
+/// ```shell
+/// java -cp target/benchmarks.jar io.github.simbo1905.no.framework.benchmarks.ScalingRunner 64
+/// ```
+public final class ScalingRunner {
+
+  private ScalingRunner() {
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    final int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    final List<Integer> threadCounts = IntStream.iterate(1, t -> t < maxThreads, t -> t * 2).boxed()
+        .collect(ArrayList::new, List::add, List::addAll);
+    threadCounts.add(maxThreads);
+
+    final Map<String, SortedMap<Integer, Double>> scores = new TreeMap<>();
+    for (int threads : threadCounts) {
+      final Collection<RunResult> results = new Runner(new OptionsBuilder()
+          .include(ScalingBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build()).run();
+      results.forEach(result -> scores
+          .computeIfAbsent(result.getParams().getBenchmark(), ignored -> new TreeMap<>())
+          .put(threads, result.getPrimaryResult().getScore()));
+    }
+
+    System.out.printf("%n%-70s %8s %14s %8s %10s%n", "Benchmark", "Threads", "ops/ms", "Speedup", "Efficiency");
+    scores.forEach((benchmark, byThreads) -> {
+      final double single = byThreads.get(1);
+      byThreads.forEach((threads, score) -> System.out.printf("%-70s %8d %14.1f %8.2f %10.2f%n",
+          benchmark, threads, score, score / single, score / single / threads));
+    });
+  }
+}
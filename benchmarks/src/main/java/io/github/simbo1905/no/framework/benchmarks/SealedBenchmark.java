@@ -0,0 +1,101 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.benchmarks;
+
+import io.github.simbo1905.no.framework.Pickler;
+import io.github.simbo1905.no.framework.animal.Animal;
+import io.github.simbo1905.no.framework.protocol.StackCommand;
+import io.github.simbo1905.no.framework.protocol.StackResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/// Measures dispatch through sealed interface picklers where every message is a different permitted record.
+/// Each operation handles the whole array of messages.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SealedBenchmark {
+
+  final Pickler<Animal> animalPickler = Pickler.forSealedInterface(Animal.class);
+  final Pickler<StackCommand> commandPickler = Pickler.forSealedInterface(StackCommand.class);
+  final Pickler<StackResponse> responsePickler = Pickler.forSealedInterface(StackResponse.class);
+
+  final Animal[] animals = Models.animals();
+  final StackCommand[] commands = Models.commands();
+  final StackResponse[] responses = Models.responses();
+
+  final ByteBuffer scratch = ByteBuffer.allocate(4096);
+  ByteBuffer animalBytes;
+  ByteBuffer protocolBytes;
+
+  @Setup
+  public void setup() {
+    animalBytes = ByteBuffer.allocate(4096);
+    writeAnimals(animalBytes);
+    animalBytes.flip();
+    protocolBytes = ByteBuffer.allocate(4096);
+    writeProtocol(protocolBytes);
+    protocolBytes.flip();
+  }
+
+  void writeAnimals(ByteBuffer buffer) {
+    for (Animal animal : animals) {
+      animalPickler.serialize(animal, buffer);
+    }
+  }
+
+  void writeProtocol(ByteBuffer buffer) {
+    for (StackCommand command : commands) {
+      commandPickler.serialize(command, buffer);
+    }
+    for (StackResponse response : responses) {
+      responsePickler.serialize(response, buffer);
+    }
+  }
+
+  @Benchmark
+  public ByteBuffer serializeAnimals() {
+    writeAnimals(scratch.clear());
+    return scratch;
+  }
+
+  @Benchmark
+  public void deserializeAnimals(Blackhole blackhole) {
+    animalBytes.rewind();
+    for (int i = 0; i < animals.length; i++) {
+      blackhole.consume(animalPickler.deserialize(animalBytes));
+    }
+  }
+
+  @Benchmark
+  public int sizeOfAnimals() {
+    int size = 0;
+    for (Animal animal : animals) {
+      size += animalPickler.sizeOf(animal);
+    }
+    return size;
+  }
+
+  @Benchmark
+  public ByteBuffer serializeProtocol() {
+    writeProtocol(scratch.clear());
+    return scratch;
+  }
+
+  @Benchmark
+  public void deserializeProtocol(Blackhole blackhole) {
+    protocolBytes.rewind();
+    for (int i = 0; i < commands.length; i++) {
+      blackhole.consume(commandPickler.deserialize(protocolBytes));
+    }
+    for (int i = 0; i < responses.length; i++) {
+      blackhole.consume(responsePickler.deserialize(protocolBytes));
+    }
+  }
+}
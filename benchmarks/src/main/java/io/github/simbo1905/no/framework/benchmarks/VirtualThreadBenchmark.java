@@ -0,0 +1,64 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.benchmarks;
+
+import io.github.simbo1905.no.framework.Pickler;
+import io.github.simbo1905.no.framework.tree.TreeNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/// Runs a batch of tasks that each round trip a tree through a shared pickler, either on a virtual thread per task
+/// or on a pool with a platform thread per core. The score is the time per batch so dividing by `tasks` gives the
+/// cost of one round trip including the scheduling.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+  @Param({"1000", "10000"})
+  int tasks;
+
+  final Pickler<TreeNode> treePickler = Pickler.forSealedInterface(TreeNode.class);
+  final TreeNode tree = Models.tree(4);
+
+  ExecutorService platform;
+
+  @Setup
+  public void setup() {
+    platform = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  @TearDown
+  public void tearDown() {
+    platform.shutdown();
+  }
+
+  void roundTrip() {
+    final ByteBuffer buffer = ByteBuffer.allocate(4096);
+    treePickler.serialize(tree, buffer);
+    treePickler.deserialize(buffer.flip());
+  }
+
+  @Benchmark
+  public void virtualThreadPerTask() {
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      IntStream.range(0, tasks).forEach(i -> executor.submit(this::roundTrip));
+    }
+  }
+
+  @Benchmark
+  public void platformThreadPool() throws Exception {
+    final var futures = IntStream.range(0, tasks).mapToObj(i -> platform.submit(this::roundTrip)).toList();
+    for (var future : futures) {
+      future.get();
+    }
+  }
+}
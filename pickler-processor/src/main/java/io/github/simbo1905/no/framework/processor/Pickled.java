@@ -0,0 +1,16 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.processor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/// Marks a record or a sealed interface of records for which [PicklerProcessor] generates a
+/// `Pickler.Precompiled` provider at build time. On a sealed interface every permitted record in the
+/// hierarchy is generated. The annotation is not retained in class files so there is no runtime dependency.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Pickled {
+}
@@ -0,0 +1,380 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/// Generates a `Pickler.Precompiled` provider for every record annotated with [Pickled] and for every record
+/// permitted by an annotated sealed interface. Each provider reads components by calling the accessors directly and
+/// creates instances by calling the constructors directly so that the runtime does not reflect over the record.
+/// The providers are listed in `META-INF/services/io.github.simbo1905.no.framework.Pickler$Precompiled` so that
+/// `Pickler.forRecord` discovers them with `ServiceLoader`.
+///
+/// The generated code only supplies accessors and constructors. The runtime pickler still does all the encoding so
+/// the bytes on the wire are the same as for a pickler created by reflection.
+///
+/// As at runtime only public constructors, plus the canonical constructor, are candidates for schema evolution.
+/// Private records cannot be accessed by generated code in the same package and are reported as errors.
+///
+/// The processor also walks every type reachable from the annotated roots through record components, type arguments
+/// and arrays. It writes GraalVM native image reflection metadata for the records, enums, sealed interfaces and array
+/// component types whose names appear on the wire to `META-INF/native-image/<dir>/reflect-config.json`. The directory
+/// defaults to `no-framework-pickler` and may be set with the `-Apickler.nativeImageDir=<group>/<artifact>` option.
+///
+/// The annotated roots are listed in `META-INF/no-framework-pickler/preload` so that `Pickler.preload()` creates
+/// their picklers at boot.
+@SupportedAnnotationTypes("io.github.simbo1905.no.framework.processor.Pickled")
+@SupportedOptions(PicklerProcessor.NATIVE_IMAGE_DIR_OPTION)
+public class PicklerProcessor extends AbstractProcessor {
+
+  static final String PRECOMPILED_INTERFACE = "io.github.simbo1905.no.framework.Pickler.Precompiled";
+
+  static final String SERVICE_FILE = "META-INF/services/io.github.simbo1905.no.framework.Pickler$Precompiled";
+
+  static final String PROVIDER_SUFFIX = "Precompiled";
+
+  static final String NATIVE_IMAGE_DIR_OPTION = "pickler.nativeImageDir";
+
+  static final String NATIVE_IMAGE_DIR_DEFAULT = "no-framework-pickler";
+
+  static final String PRELOAD_MANIFEST = "META-INF/no-framework-pickler/preload";
+
+  /// Records are created from public or canonical constructors and read through accessors and record components.
+  static final List<String> RECORD_FLAGS = List.of("allDeclaredConstructors", "allPublicConstructors",
+      "allPublicMethods", "allRecordComponents");
+
+  /// Enums are loaded by name and `Enum.valueOf` calls the generated `values()` method reflectively.
+  static final List<String> ENUM_FLAGS = List.of("allPublicFields", "allPublicMethods");
+
+  /// Sealed interfaces are walked with `getPermittedSubclasses`.
+  static final List<String> SEALED_FLAGS = List.of("allPermittedSubclasses");
+
+  /// Binary names of the providers generated so far in this compilation in the order they were generated.
+  final Set<String> providers = new LinkedHashSet<>();
+
+  /// Binary names of the annotated roots in the order they were found.
+  final Set<String> roots = new LinkedHashSet<>();
+
+  /// Native image reflection metadata keyed by class name with the flags to enable for each.
+  final Map<String, List<String>> reflection = new TreeMap<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver()) {
+      writeServiceFile();
+      writeReflectConfig();
+      writePreloadManifest();
+      return false;
+    }
+    final List<TypeElement> roots = roundEnv.getElementsAnnotatedWith(Pickled.class).stream()
+        .map(TypeElement.class::cast)
+        .toList();
+    roots.stream()
+        .flatMap(this::permittedRecords)
+        .distinct()
+        .forEach(this::generateProvider);
+    roots.forEach(root -> collectReflection(root.asType()));
+    roots.forEach(root -> this.roots.add(processingEnv.getElementUtils().getBinaryName(root).toString()));
+    return true;
+  }
+
+  /// Records the metadata needed for every class whose name the runtime resolves with `Class.forName`.
+  void collectReflection(TypeMirror type) {
+    switch (type.getKind()) {
+      case ARRAY -> {
+        final TypeMirror component = ((ArrayType) type).getComponentType();
+        if (!component.getKind().isPrimitive()) {
+          // the component type name of an array is written to the wire so must be loadable by name
+          reflection.putIfAbsent(runtimeName(component), List.of());
+        }
+        collectReflection(component);
+      }
+      case DECLARED -> {
+        final var declared = (DeclaredType) type;
+        final var element = (TypeElement) declared.asElement();
+        final String name = runtimeName(type);
+        declared.getTypeArguments().forEach(this::collectReflection);
+        if (element.getKind() == ElementKind.RECORD && !RECORD_FLAGS.equals(reflection.get(name))) {
+          reflection.put(name, RECORD_FLAGS);
+          element.getRecordComponents().forEach(component -> collectReflection(component.asType()));
+        } else if (element.getKind() == ElementKind.ENUM) {
+          reflection.put(name, ENUM_FLAGS);
+        } else if (element.getModifiers().contains(Modifier.SEALED) && !SEALED_FLAGS.equals(reflection.get(name))) {
+          reflection.put(name, SEALED_FLAGS);
+          element.getPermittedSubclasses().forEach(this::collectReflection);
+        }
+      }
+      case WILDCARD -> {
+        final var wildcard = (WildcardType) type;
+        Optional.ofNullable(wildcard.getExtendsBound()).ifPresent(this::collectReflection);
+      }
+      default -> {
+        // primitives are mapped by name without reflection and type variables are erased on the wire
+      }
+    }
+  }
+
+  /// The name that `Class.getName` returns at runtime in the source form that native image metadata accepts.
+  String runtimeName(TypeMirror type) {
+    return switch (type.getKind()) {
+      case ARRAY -> runtimeName(((ArrayType) type).getComponentType()) + "[]";
+      case DECLARED -> processingEnv.getElementUtils()
+          .getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString();
+      default -> processingEnv.getTypeUtils().erasure(type).toString();
+    };
+  }
+
+  /// Finds the records in a hierarchy in the same way as `SealedPickler.allPermittedRecordClasses` at runtime.
+  Stream<TypeElement> permittedRecords(TypeElement type) {
+    if (type.getKind() == ElementKind.RECORD) {
+      return Stream.of(type);
+    }
+    if (!type.getModifiers().contains(Modifier.SEALED)) {
+      error(type, "@Pickled must be placed on a record or a sealed interface: " + type.getQualifiedName());
+      return Stream.empty();
+    }
+    return type.getPermittedSubclasses().stream()
+        .map(permitted -> (TypeElement) processingEnv.getTypeUtils().asElement(permitted))
+        .flatMap(permitted -> {
+          if (permitted.getKind() == ElementKind.RECORD || permitted.getModifiers().contains(Modifier.SEALED)) {
+            return permittedRecords(permitted);
+          }
+          error(permitted, "Permitted subclass must be either a record or sealed interface: " + permitted.getQualifiedName());
+          return Stream.empty();
+        });
+  }
+
+  void generateProvider(TypeElement record) {
+    if (isPrivate(record)) {
+      error(record, "Record must not be private to have a generated pickler: " + record.getQualifiedName());
+      return;
+    }
+    final String packageName = processingEnv.getElementUtils().getPackageOf(record).getQualifiedName().toString();
+    final String providerSimpleName = nestedName(record).replace('.', '_') + PROVIDER_SUFFIX;
+    final String providerName = packageName.isEmpty() ? providerSimpleName : packageName + "." + providerSimpleName;
+    if (!providers.add(providerName)) {
+      return;
+    }
+    try (Writer writer = processingEnv.getFiler().createSourceFile(providerName, record).openWriter()) {
+      writer.write(providerSource(record, packageName, providerSimpleName));
+    } catch (IOException e) {
+      error(record, "Failed to write " + providerName + ": " + e.getMessage());
+    }
+  }
+
+  String providerSource(TypeElement record, String packageName, String providerSimpleName) {
+    final String recordType = render(processingEnv.getTypeUtils().erasure(record.asType()));
+    final List<? extends RecordComponentElement> components = record.getRecordComponents();
+    final List<ExecutableElement> constructors = constructors(record);
+
+    final String componentCases = IntStream.range(0, components.size())
+        .mapToObj(i -> "      case %d -> record.%s();\n".formatted(i, components.get(i).getAccessor().getSimpleName()))
+        .collect(Collectors.joining());
+
+    final String constructorCases = constructors.stream()
+        .map(constructor -> "      case %d -> new %s(%s);\n".formatted(
+            constructor.getParameters().size(),
+            recordType,
+            IntStream.range(0, constructor.getParameters().size())
+                .mapToObj(i -> "(%s) components[%d]".formatted(castType(constructor.getParameters().get(i).asType()), i))
+                .collect(Collectors.joining(", "))))
+        .collect(Collectors.joining());
+
+    final String arities = constructors.stream()
+        .map(constructor -> String.valueOf(constructor.getParameters().size()))
+        .collect(Collectors.joining(", "));
+
+    return (packageName.isEmpty() ? "" : "package " + packageName + ";\n\n") + """
+        /// Generated by %1$s for [%2$s]. Do not edit.
+        @javax.annotation.processing.Generated("%1$s")
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public final class %3$s implements %4$s<%2$s> {
+
+          @Override
+          public Class<%2$s> recordClass() {
+            return %2$s.class;
+          }
+
+          @Override
+          public int componentCount() {
+            return %5$d;
+          }
+
+          @Override
+          public int[] constructorArities() {
+            return new int[]{%6$s};
+          }
+
+          @Override
+          public Object component(%2$s record, int index) {
+            return switch (index) {
+        %7$s      default -> throw new IndexOutOfBoundsException(index);
+            };
+          }
+
+          @Override
+          public %2$s newInstance(Object[] components) {
+            return switch (components.length) {
+        %8$s      default -> throw new IllegalArgumentException("No constructor of %2$s has " + components.length + " parameters");
+            };
+          }
+        }
+        """.formatted(
+        PicklerProcessor.class.getName(),
+        recordType,
+        providerSimpleName,
+        PRECOMPILED_INTERFACE,
+        components.size(),
+        arities,
+        componentCases,
+        constructorCases);
+  }
+
+  /// Returns the canonical constructor first followed by the public constructors with distinct parameter counts.
+  List<ExecutableElement> constructors(TypeElement record) {
+    final var types = processingEnv.getTypeUtils();
+    final List<TypeMirror> componentTypes = record.getRecordComponents().stream()
+        .map(component -> types.erasure(component.asType()))
+        .toList();
+    final List<ExecutableElement> all = ElementFilter.constructorsIn(record.getEnclosedElements());
+    final Map<Integer, ExecutableElement> byArity = new LinkedHashMap<>();
+    all.stream()
+        .filter(constructor -> isCanonical(constructor, componentTypes))
+        .findFirst()
+        .ifPresentOrElse(canonical -> byArity.put(componentTypes.size(), canonical),
+            () -> error(record, "Cannot find the canonical constructor of " + record.getQualifiedName()));
+    all.stream()
+        .filter(constructor -> !isCanonical(constructor, componentTypes))
+        .filter(constructor -> constructor.getModifiers().contains(Modifier.PUBLIC))
+        .forEach(constructor -> {
+          if (byArity.putIfAbsent(constructor.getParameters().size(), constructor) != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Multiple constructors with " +
+                constructor.getParameters().size() + " parameters found for " + record.getQualifiedName() +
+                ". Using the first one encountered.", constructor);
+          }
+        });
+    return List.copyOf(byArity.values());
+  }
+
+  boolean isCanonical(ExecutableElement constructor, List<TypeMirror> componentTypes) {
+    final var types = processingEnv.getTypeUtils();
+    final var parameters = constructor.getParameters();
+    return parameters.size() == componentTypes.size() && IntStream.range(0, parameters.size())
+        .allMatch(i -> types.isSameType(types.erasure(parameters.get(i).asType()), componentTypes.get(i)));
+  }
+
+  /// Renders the type to cast a component to. Types that mention type variables are cast to their erasure.
+  String castType(TypeMirror type) {
+    return mentionsTypeVariable(type) ? render(processingEnv.getTypeUtils().erasure(type)) : render(type);
+  }
+
+  boolean mentionsTypeVariable(TypeMirror type) {
+    return switch (type.getKind()) {
+      case TYPEVAR -> true;
+      case ARRAY -> mentionsTypeVariable(((ArrayType) type).getComponentType());
+      case DECLARED -> ((DeclaredType) type).getTypeArguments().stream().anyMatch(this::mentionsTypeVariable);
+      case WILDCARD -> true;
+      default -> false;
+    };
+  }
+
+  /// Renders a type as source. We do not use `TypeMirror.toString` as that includes any type annotations.
+  String render(TypeMirror type) {
+    return switch (type.getKind()) {
+      case BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE -> type.getKind().name().toLowerCase(Locale.ROOT);
+      case ARRAY -> render(((ArrayType) type).getComponentType()) + "[]";
+      case DECLARED -> {
+        final var declared = (DeclaredType) type;
+        final var name = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+        yield declared.getTypeArguments().isEmpty() ? name : name + declared.getTypeArguments().stream()
+            .map(this::render)
+            .collect(Collectors.joining(", ", "<", ">"));
+      }
+      default -> processingEnv.getTypeUtils().erasure(type).toString();
+    };
+  }
+
+  /// The name of the type relative to its package such as `Outer.Inner`.
+  static String nestedName(TypeElement type) {
+    return type.getEnclosingElement() instanceof TypeElement outer ?
+        nestedName(outer) + "." + type.getSimpleName() : type.getSimpleName().toString();
+  }
+
+  static boolean isPrivate(Element element) {
+    return element.getModifiers().contains(Modifier.PRIVATE) ||
+        (element.getEnclosingElement() instanceof TypeElement outer && isPrivate(outer));
+  }
+
+  void writeServiceFile() {
+    if (providers.isEmpty()) {
+      return;
+    }
+    try (Writer writer = processingEnv.getFiler()
+        .createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE)
+        .openWriter()) {
+      writer.write(providers.stream().map(provider -> provider + "\n").collect(Collectors.joining()));
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + SERVICE_FILE + ": " + e.getMessage());
+    }
+  }
+
+  void writeReflectConfig() {
+    if (reflection.isEmpty()) {
+      return;
+    }
+    final String directory = processingEnv.getOptions().getOrDefault(NATIVE_IMAGE_DIR_OPTION, NATIVE_IMAGE_DIR_DEFAULT);
+    final String entries = reflection.entrySet().stream()
+        .map(entry -> "  {\"name\": \"" + entry.getKey() + "\"" + entry.getValue().stream()
+            .map(flag -> ", \"" + flag + "\": true")
+            .collect(Collectors.joining()) + "}")
+        .collect(Collectors.joining(",\n", "[\n", "\n]\n"));
+    final String file = "META-INF/native-image/" + directory + "/reflect-config.json";
+    try (Writer writer = processingEnv.getFiler()
+        .createResource(StandardLocation.CLASS_OUTPUT, "", file)
+        .openWriter()) {
+      writer.write(entries);
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + file + ": " + e.getMessage());
+    }
+  }
+
+  void writePreloadManifest() {
+    if (roots.isEmpty()) {
+      return;
+    }
+    try (Writer writer = processingEnv.getFiler()
+        .createResource(StandardLocation.CLASS_OUTPUT, "", PRELOAD_MANIFEST)
+        .openWriter()) {
+      writer.write(roots.stream().map(root -> root + "\n").collect(Collectors.joining()));
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + PRELOAD_MANIFEST + ": " + e.getMessage());
+    }
+  }
+
+  void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+}
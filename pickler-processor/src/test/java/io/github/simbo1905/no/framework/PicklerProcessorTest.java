@@ -0,0 +1,181 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import io.github.simbo1905.no.framework.processor.PicklerProcessor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Compiles sample records with the [PicklerProcessor] and checks that the generated providers are discovered and
+/// produce the same bytes as picklers created by reflection. This test lives in the runtime package so that it can
+/// build both kinds of pickler directly with `Companion` for classes that are only visible to the sample loader.
+class PicklerProcessorTest {
+
+  static final String SHAPES = """
+      package sample;
+
+      import io.github.simbo1905.no.framework.processor.Pickled;
+
+      @Pickled
+      public sealed interface Shape permits Shape.Circle, Shape.Square, Shape.Polygon {
+        record Circle(double radius) implements Shape {}
+        record Square(double side, String label) implements Shape {
+          /// Fallback constructor for data written before the label was added
+          public Square(double side) {
+            this(side, "square");
+          }
+        }
+        sealed interface Polygon extends Shape permits Triangle {}
+        record Triangle(int[] sides) implements Polygon {}
+      }
+      """;
+
+  static final String ORDER = """
+      package sample;
+
+      import io.github.simbo1905.no.framework.processor.Pickled;
+      import java.util.*;
+
+      @Pickled
+      public record Order(UUID id, Optional<String> note, List<String> items, Map<String, Integer> quantities,
+                          Status status, Shape.Circle badge, long total, boolean paid) {
+        public enum Status { NEW, SHIPPED }
+      }
+      """;
+
+  static final String CATALOG = """
+      package sample;
+
+      import io.github.simbo1905.no.framework.processor.Pickled;
+      import java.util.List;
+
+      @Pickled
+      public record Catalog(String[] tags, Order.Status[] statuses, List<Shape> shapes) {}
+      """;
+
+  static Path output;
+  static ClassLoader loader;
+
+  @BeforeAll
+  static void compile() throws IOException {
+    output = Files.createTempDirectory("pickler-processor");
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final StringWriter diagnostics = new StringWriter();
+    final JavaCompiler.CompilationTask task = compiler.getTask(diagnostics, null, null,
+        List.of("-d", output.toString(), "-s", output.toString(), "-classpath", System.getProperty("java.class.path")),
+        null,
+        List.of(source("sample.Shape", SHAPES), source("sample.Order", ORDER), source("sample.Catalog", CATALOG)));
+    task.setProcessors(List.of(new PicklerProcessor()));
+    assertTrue(task.call(), diagnostics::toString);
+    loader = new URLClassLoader(new URL[]{output.toUri().toURL()}, PicklerProcessorTest.class.getClassLoader());
+  }
+
+  static JavaFileObject source(String className, String code) {
+    return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+        JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return code;
+      }
+    };
+  }
+
+  static Map<Class<?>, Pickler.Precompiled<?>> providers() {
+    final Map<Class<?>, Pickler.Precompiled<?>> providers = new HashMap<>();
+    ServiceLoader.load(Pickler.Precompiled.class, loader).forEach(p -> providers.put(p.recordClass(), p));
+    return providers;
+  }
+
+  @Test
+  void testServiceFileListsEveryRecord() throws Exception {
+    final var providers = providers();
+    assertEquals(Set.of(
+            loader.loadClass("sample.Shape$Circle"),
+            loader.loadClass("sample.Shape$Square"),
+            loader.loadClass("sample.Shape$Triangle"),
+            loader.loadClass("sample.Order"),
+            loader.loadClass("sample.Catalog")),
+        providers.keySet());
+    assertEquals(1, providers.get(loader.loadClass("sample.Shape$Circle")).componentCount());
+    assertArrayEquals(new int[]{2, 1}, providers.get(loader.loadClass("sample.Shape$Square")).constructorArities());
+  }
+
+  @Test
+  void testGeneratedProviderIsWireCompatible() throws Exception {
+    final var providers = providers();
+    @SuppressWarnings("unchecked") final Class<Record> orderClass = (Class<Record>) loader.loadClass("sample.Order");
+    final Class<?> statusClass = loader.loadClass("sample.Order$Status");
+    final Class<?> circleClass = loader.loadClass("sample.Shape$Circle");
+    final Object badge = circleClass.getConstructors()[0].newInstance(2.5);
+    final Object shipped = statusClass.getEnumConstants()[1];
+    final Record order = (Record) orderClass.getConstructors()[0].newInstance(
+        new UUID(1, 2), Optional.of("fragile"), List.of("a", "b"), Map.of("a", 1, "b", 2), shipped, badge, 99L, true);
+
+    final Pickler<Record> precompiled = Companion.manufacturePrecompiledPickler(orderClass, providers.get(orderClass));
+    final Pickler<Record> reflected = Companion.manufactureRecordPickler(orderClass);
+
+    final var precompiledBuffer = ByteBuffer.allocate(reflected.sizeOf(order));
+    precompiled.serialize(order, precompiledBuffer);
+    final var reflectedBuffer = ByteBuffer.allocate(reflected.sizeOf(order));
+    reflected.serialize(order, reflectedBuffer);
+    assertArrayEquals(reflectedBuffer.array(), precompiledBuffer.array());
+
+    // Class names on the wire are resolved by the runtime's own class loader so round trip a record that writes none
+    @SuppressWarnings("unchecked") final Class<Record> squareClass = (Class<Record>) loader.loadClass("sample.Shape$Square");
+    final Record square = (Record) squareClass.getConstructor(double.class, String.class).newInstance(1.5, "tile");
+    final Pickler<Record> squarePickler = Companion.manufacturePrecompiledPickler(squareClass, providers.get(squareClass));
+    final var squareBuffer = ByteBuffer.allocate(squarePickler.sizeOf(square));
+    squarePickler.serialize(square, squareBuffer);
+    squareBuffer.flip();
+    assertEquals(square, squarePickler.deserialize(squareBuffer));
+  }
+
+  @Test
+  void testGeneratedFallbackConstructor() throws Exception {
+    final var providers = providers();
+    @SuppressWarnings("unchecked") final Pickler.Precompiled<Record> square =
+        (Pickler.Precompiled<Record>) providers.get(loader.loadClass("sample.Shape$Square"));
+    final Record fallback = square.newInstance(new Object[]{3.0});
+    assertEquals(3.0, square.component(fallback, 0));
+    assertEquals("square", square.component(fallback, 1));
+    assertThrows(IllegalArgumentException.class, () -> square.newInstance(new Object[0]));
+  }
+
+  @Test
+  void testPreloadManifestListsRoots() throws IOException {
+    try (var manifest = Files.newBufferedReader(output.resolve("META-INF/no-framework-pickler/preload"))) {
+      assertEquals(List.of("sample.Shape", "sample.Order", "sample.Catalog"),
+          Pickler.readManifest(manifest, loader).stream().map(Class::getName).toList());
+    }
+  }
+
+  @Test
+  void testNativeImageReflectConfig() throws IOException {
+    final var config = Files.readAllLines(output.resolve("META-INF/native-image/no-framework-pickler/reflect-config.json"));
+    final var recordFlags = "\"allDeclaredConstructors\": true, \"allPublicConstructors\": true, " +
+        "\"allPublicMethods\": true, \"allRecordComponents\": true}";
+    assertEquals("[", config.getFirst());
+    assertEquals("]", config.getLast());
+    assertTrue(config.contains("  {\"name\": \"java.lang.String\"},"), "array component types are loaded by name");
+    assertTrue(config.contains("  {\"name\": \"sample.Order$Status\", \"allPublicFields\": true, \"allPublicMethods\": true},"));
+    assertTrue(config.contains("  {\"name\": \"sample.Shape\", \"allPermittedSubclasses\": true},"));
+    assertTrue(config.contains("  {\"name\": \"sample.Shape$Polygon\", \"allPermittedSubclasses\": true},"));
+    assertTrue(config.contains("  {\"name\": \"sample.Catalog\", " + recordFlags + ","));
+    assertTrue(config.contains("  {\"name\": \"sample.Shape$Triangle\", " + recordFlags));
+    // brackets, 4 shape records, 2 sealed interfaces, 2 record roots, 1 enum and String
+    assertEquals(11, config.size(), () -> String.join("\n", config));
+  }
+}
@@ -0,0 +1,32 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.rpc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/// A bounded pool of direct buffers so that connections and calls do not allocate a buffer each. A buffer that is
+/// released when the pool is full is left to the garbage collector.
+final class BufferPool {
+
+  /// The size of the buffers which is large enough to gather many small frames into one write.
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ArrayBlockingQueue<ByteBuffer> free;
+
+  /// @param capacity The most buffers to keep for reuse
+  BufferPool(int capacity) {
+    this.free = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /// @return A cleared buffer
+  ByteBuffer acquire() {
+    final ByteBuffer buffer = free.poll();
+    return buffer == null ? ByteBuffer.allocateDirect(BUFFER_SIZE) : buffer.clear();
+  }
+
+  /// @param buffer A buffer from [#acquire] that is no longer used
+  void release(ByteBuffer buffer) {
+    free.offer(buffer);
+  }
+}
@@ -0,0 +1,74 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.rpc;
+
+import io.github.simbo1905.no.framework.Pickler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.util.Objects;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/// Writes the frames that many threads send on one connection from a virtual thread of its own. It takes every frame
+/// that is waiting each time it wakes and gathers them into one write so that the busier the connection the fewer
+/// writes per frame. If a write fails the channel is closed which fails the reader of the connection.
+/// @param <T> The record type or sealed interface of the messages
+final class FrameSender<T> implements Closeable {
+
+  private record Frame<T>(int correlationId, T message) {
+  }
+
+  private final Pickler.Framing<T> framing;
+  private final Pickler<T> pickler;
+  private final ByteChannel channel;
+  private final BufferPool pool;
+  private final LinkedBlockingQueue<Frame<T>> queue = new LinkedBlockingQueue<>();
+  private final Thread writer;
+
+  FrameSender(Pickler.Framing<T> framing, Pickler<T> pickler, ByteChannel channel, BufferPool pool, String name) {
+    this.framing = framing;
+    this.pickler = pickler;
+    this.channel = channel;
+    this.pool = pool;
+    this.writer = Thread.ofVirtual().name(name).start(this::run);
+  }
+
+  /// Queues a frame without waiting for it to be written.
+  void send(int correlationId, T message) {
+    queue.add(new Frame<>(correlationId, Objects.requireNonNull(message, "message")));
+  }
+
+  private void run() {
+    final ByteBuffer buffer = pool.acquire();
+    try {
+      final var out = new FrameWriter<>(framing, pickler, channel, buffer);
+      while (true) {
+        Frame<T> frame = queue.take();
+        do {
+          out.add(frame.correlationId(), frame.message());
+          frame = queue.poll();
+        } while (frame != null);
+        out.flush();
+      }
+    } catch (InterruptedException e) {
+      // closed
+    } catch (IOException | RuntimeException e) {
+      RpcServer.LOGGER.fine(() -> "Closing the connection after a failed write: " + e);
+      try {
+        channel.close();
+      } catch (IOException ignored) {
+        // already failed
+      }
+    } finally {
+      pool.release(buffer);
+    }
+  }
+
+  /// Stops the writer thread without writing the frames that are still queued.
+  @Override
+  public void close() {
+    writer.interrupt();
+  }
+}
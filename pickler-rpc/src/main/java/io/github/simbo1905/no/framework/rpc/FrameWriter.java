@@ -0,0 +1,67 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.rpc;
+
+import io.github.simbo1905.no.framework.Pickler;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/// Gathers correlated frames into a buffer and writes them to a blocking channel when it is full or flushed. A message
+/// that is larger than the buffer is framed into a buffer of its own. It is not thread safe.
+/// @param <T> The record type or sealed interface of the messages
+final class FrameWriter<T> {
+
+  /// The most bytes that the varint length, correlation id and tag add to a message.
+  static final int FRAME_OVERHEAD = 15;
+
+  private final Pickler.Framing<T> framing;
+  private final Pickler<T> pickler;
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer;
+
+  FrameWriter(Pickler.Framing<T> framing, Pickler<T> pickler, WritableByteChannel channel, ByteBuffer buffer) {
+    this.framing = framing;
+    this.pickler = pickler;
+    this.channel = channel;
+    this.buffer = buffer.clear();
+  }
+
+  void add(int correlationId, T message) throws IOException {
+    Objects.requireNonNull(message, "message");
+    try {
+      framing.encode(correlationId, message, buffer);
+    } catch (BufferOverflowException e) {
+      flush();
+      try {
+        framing.encode(correlationId, message, buffer);
+      } catch (BufferOverflowException tooLarge) {
+        // the sealed pickler's size includes the class name which is larger than the tag
+        final ByteBuffer own = ByteBuffer.allocate(pickler.sizeOf(message) + FRAME_OVERHEAD);
+        framing.encode(correlationId, message, own);
+        writeFully(own.flip());
+      }
+    }
+  }
+
+  void flush() throws IOException {
+    writeFully(buffer.flip());
+    buffer.clear();
+  }
+
+  private void writeFully(ByteBuffer bytes) throws IOException {
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+  }
+
+  /// @return The pickler for a record type or sealed interface
+  @SuppressWarnings("unchecked")
+  static <T> Pickler<T> pickler(Class<T> type) {
+    return type.isRecord() ? (Pickler<T>) Pickler.forRecord(type.asSubclass(Record.class)) :
+        Pickler.forSealedInterface(type);
+  }
+}
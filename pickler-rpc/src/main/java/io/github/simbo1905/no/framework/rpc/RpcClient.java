@@ -0,0 +1,152 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.rpc;
+
+import io.github.simbo1905.no.framework.Pickler;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/// Calls an [RpcServer] over one connection that many threads share. Each request is framed with a correlation id
+/// and a future that waits for the response with the same id, so many requests may be in flight at once and their
+/// responses may arrive in any order. Requests are queued for a virtual thread that gathers them into pooled buffers
+/// and another virtual thread decodes the responses in place and completes the futures. Dependent actions that are not
+/// async run on that thread so keep them short. When the connection fails or is closed every waiting future fails
+/// with the [IOException].
+/// @param <Q> The request record type or sealed interface
+/// @param <R> The response record type or sealed interface
+public final class RpcClient<Q, R> implements Closeable {
+
+  /// The most buffers kept for reuse by the writer of the connection.
+  static final int POOLED_BUFFERS = 2;
+
+  private final SocketChannel channel;
+  private final Pickler.Framing<R> responses;
+  private final FrameSender<Q> sender;
+  private final Map<Integer, CompletableFuture<R>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicInteger correlationIds = new AtomicInteger();
+  /// Set once the connection has failed so that later requests fail at once.
+  private volatile IOException failure;
+
+  private RpcClient(SocketChannel channel, Class<Q> requestType, Class<R> responseType) {
+    this.channel = channel;
+    this.responses = Pickler.Framing.correlated(responseType);
+    this.sender = new FrameSender<>(Pickler.Framing.correlated(requestType), FrameWriter.pickler(requestType), channel,
+        new BufferPool(POOLED_BUFFERS), "pickler-rpc-client-send");
+    Thread.ofVirtual().name("pickler-rpc-client-receive").start(this::receive);
+  }
+
+  /// @param address The address of the server
+  /// @param requestType The record type or sealed interface of the requests
+  /// @param responseType The record type or sealed interface of the responses
+  /// @return A client connected to the server
+  public static <Q, R> RpcClient<Q, R> connect(InetSocketAddress address, Class<Q> requestType,
+                                               Class<R> responseType) throws IOException {
+    final SocketChannel channel = SocketChannel.open(address);
+    try {
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      return new RpcClient<>(channel, requestType, responseType);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /// Queues the request without waiting for it to be written.
+  /// @param request The request which is not null
+  /// @return A future of the response which fails with an [IOException] if the connection fails first
+  public CompletableFuture<R> send(Q request) {
+    Objects.requireNonNull(request, "request");
+    final CompletableFuture<R> response = new CompletableFuture<>();
+    // the ids wrap so skip any that a slow request still holds rather than replace its future
+    int correlationId;
+    do {
+      correlationId = correlationIds.getAndIncrement() & Integer.MAX_VALUE;
+    } while (inFlight.putIfAbsent(correlationId, response) != null);
+    // the receiver sets the failure before it fails the futures that are in flight so one of us fails this one
+    final IOException failed = failure;
+    if (failed != null) {
+      inFlight.remove(correlationId);
+      response.completeExceptionally(failed);
+    } else {
+      sender.send(correlationId, request);
+    }
+    return response;
+  }
+
+  /// Sends the request and waits for its response.
+  /// @param request The request which is not null
+  /// @return The response of the server
+  /// @throws EOFException If the server closed the connection
+  public R call(Q request) throws IOException {
+    try {
+      return send(request).get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException io) {
+        throw io;
+      }
+      throw new IOException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for a response");
+    }
+  }
+
+  /// @return The number of requests that are waiting for responses
+  public int inFlight() {
+    return inFlight.size();
+  }
+
+  private void receive() {
+    IOException failed = null;
+    try {
+      final var decoder = responses.decoder();
+      while (decoder.read(channel) >= 0) {
+        for (Optional<R> response = decoder.next(); response.isPresent(); response = decoder.next()) {
+          final int correlationId = decoder.correlationId();
+          final CompletableFuture<R> waiting = inFlight.remove(correlationId);
+          if (waiting == null) {
+            RpcServer.LOGGER.warning(() -> "Ignoring a response with an unknown correlation id " + correlationId);
+          } else {
+            waiting.complete(response.get());
+          }
+        }
+      }
+      failed = new EOFException("The server closed the connection");
+    } catch (IOException e) {
+      failed = e;
+    } catch (RuntimeException e) {
+      failed = new IOException("Closing the connection after an invalid response", e);
+    } finally {
+      // an error escapes the catches above yet the callers must still not wait forever
+      failure = failed != null ? failed : new IOException("The connection failed unexpectedly");
+      inFlight.keySet().forEach(correlationId -> Optional.ofNullable(inFlight.remove(correlationId))
+          .ifPresent(waiting -> waiting.completeExceptionally(failure)));
+      sender.close();
+      try {
+        channel.close();
+      } catch (IOException e) {
+        RpcServer.LOGGER.fine(() -> "Failed to close the connection: " + e);
+      }
+    }
+  }
+
+  /// Closes the connection which fails the requests that are in flight.
+  @Override
+  public void close() throws IOException {
+    sender.close();
+    channel.close();
+  }
+}
@@ -0,0 +1,159 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.rpc;
+
+import io.github.simbo1905.no.framework.Pickler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/// Serves the requests of a sealed interface with the responses of another over TCP. Each connection is read on a
+/// virtual thread that decodes the frames of a [Pickler.Framing#correlated] framing and calls the handler for each
+/// request on a virtual thread of its own. Each response is sent with the correlation id of its request as soon as it
+/// is ready so a slow request does not hold up the requests behind it. Responses that are ready together are gathered
+/// into one write. At most [#MAX_IN_FLIGHT] requests of a connection are handled at once after which the server stops
+/// reading the connection until one completes. Write the handler as a switch over the request interface so that the compiler checks that it handles every
+/// record:
+///
+/// ```
+/// RpcServer<StackCommand, StackResponse> server = RpcServer.start(new InetSocketAddress(8080),
+///     StackCommand.class, StackResponse.class, command -> switch (command) {
+///       case Push push -> push(push.item());
+///       case Pop pop -> pop();
+///       case Peek peek -> peek();
+///     });
+/// ```
+///
+/// The handler is called concurrently. If it throws, or returns null, the connection is closed which fails the calls
+/// that the client is waiting for.
+/// @param <Q> The request record type or sealed interface
+/// @param <R> The response record type or sealed interface
+public final class RpcServer<Q, R> implements Closeable {
+
+  static final Logger LOGGER = Logger.getLogger(RpcServer.class.getName());
+
+  /// The most buffers kept for reuse across connections.
+  static final int POOLED_BUFFERS = 256;
+
+  /// The most requests of one connection that are handled at once.
+  public static final int MAX_IN_FLIGHT = 1024;
+
+  private final ServerSocketChannel server;
+  private final Pickler.Framing<Q> requests;
+  private final Pickler.Framing<R> responses;
+  private final Pickler<R> responsePickler;
+  private final Function<? super Q, ? extends R> handler;
+  private final BufferPool pool = new BufferPool(POOLED_BUFFERS);
+  private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+
+  private RpcServer(ServerSocketChannel server, Class<Q> requestType, Class<R> responseType,
+                    Function<? super Q, ? extends R> handler) {
+    this.server = server;
+    this.requests = Pickler.Framing.correlated(requestType);
+    this.responses = Pickler.Framing.correlated(responseType);
+    this.responsePickler = FrameWriter.pickler(responseType);
+    this.handler = Objects.requireNonNull(handler, "handler");
+  }
+
+  /// Binds the address and accepts connections on a virtual thread.
+  /// @param address The address to listen on where port `0` picks a free port
+  /// @param requestType The record type or sealed interface of the requests
+  /// @param responseType The record type or sealed interface of the responses
+  /// @param handler Returns the response to a request
+  /// @return The running server
+  public static <Q, R> RpcServer<Q, R> start(InetSocketAddress address, Class<Q> requestType, Class<R> responseType,
+                                             Function<? super Q, ? extends R> handler) throws IOException {
+    final ServerSocketChannel server = ServerSocketChannel.open();
+    try {
+      final RpcServer<Q, R> rpc = new RpcServer<>(server.bind(address), requestType, responseType, handler);
+      Thread.ofVirtual().name("pickler-rpc-accept").start(rpc::accept);
+      return rpc;
+    } catch (IOException | RuntimeException e) {
+      server.close();
+      throw e;
+    }
+  }
+
+  /// @return The address that the server listens on
+  public InetSocketAddress address() throws IOException {
+    return (InetSocketAddress) server.getLocalAddress();
+  }
+
+  private void accept() {
+    while (server.isOpen()) {
+      try {
+        final SocketChannel channel = server.accept();
+        connections.add(channel);
+        Thread.ofVirtual().name("pickler-rpc-" + channel.getRemoteAddress()).start(() -> serve(channel));
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Failed to accept a connection", e);
+      }
+    }
+  }
+
+  private void serve(SocketChannel channel) {
+    final var sender = new FrameSender<>(responses, responsePickler, channel, pool, "pickler-rpc-send");
+    final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+    try (channel; sender) {
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      final var decoder = requests.decoder();
+      while (decoder.read(channel) >= 0) {
+        for (Optional<Q> request = decoder.next(); request.isPresent(); request = decoder.next()) {
+          final int correlationId = decoder.correlationId();
+          final Q message = request.get();
+          inFlight.acquire();
+          Thread.ofVirtual().start(() -> {
+            try {
+              sender.send(correlationId, handler.apply(message));
+            } catch (RuntimeException e) {
+              LOGGER.log(Level.SEVERE, "Closing the connection after a failure", e);
+              close(channel);
+            } finally {
+              inFlight.release();
+            }
+          });
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.fine(() -> "Connection closed: " + e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.SEVERE, "Closing the connection after a failure", e);
+    } finally {
+      connections.remove(channel);
+    }
+  }
+
+  private static void close(SocketChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOGGER.fine(() -> "Failed to close a connection: " + e);
+    }
+  }
+
+  /// Stops accepting connections and closes the open connections.
+  @Override
+  public void close() throws IOException {
+    server.close();
+    for (SocketChannel channel : connections) {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.rpc;
+
+import io.github.simbo1905.no.framework.protocol.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+import static io.github.simbo1905.no.framework.rpc.RpcTest.LOOPBACK;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests for many requests in flight on one connection between an [RpcClient] and an [RpcServer].
+class PipeliningTest {
+
+  static void sleep(Duration duration) {
+    try {
+      Thread.sleep(duration);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  void testSlowRequestsDoNotHoldUpLaterOnes() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    try (var server = RpcServer.start(LOOPBACK, StackCommand.class, StackResponse.class, command -> switch (command) {
+      case Push push -> {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        yield new Success(Optional.of(push.item()));
+      }
+      case Pop ignored -> new Failure("pop");
+      case Peek ignored -> new Failure("peek");
+    }); var client = RpcClient.connect(server.address(), StackCommand.class, StackResponse.class)) {
+      final CompletableFuture<StackResponse> slow = client.send(new Push("slow"));
+      assertEquals(new Failure("peek"), client.send(new Peek()).get());
+      assertEquals(new Failure("pop"), client.call(new Pop()));
+      assertFalse(slow.isDone());
+      assertEquals(1, client.inFlight());
+      release.countDown();
+      assertEquals(new Success(Optional.of("slow")), slow.get());
+      assertEquals(0, client.inFlight());
+    }
+  }
+
+  @Test
+  void testRequestsAreHandledInParallel() throws Exception {
+    final Duration delay = Duration.ofMillis(100);
+    try (var server = RpcServer.start(LOOPBACK, StackCommand.class, StackResponse.class, command -> switch (command) {
+      case Push push -> {
+        sleep(delay);
+        yield new Success(Optional.of(push.item()));
+      }
+      case Pop ignored -> new Failure("pop");
+      case Peek ignored -> new Failure("peek");
+    }); var client = RpcClient.connect(server.address(), StackCommand.class, StackResponse.class)) {
+      final long start = System.nanoTime();
+      final List<CompletableFuture<StackResponse>> responses = IntStream.range(0, 500)
+          .mapToObj(i -> client.send(new Push(Integer.toString(i))))
+          .toList();
+      for (int i = 0; i < responses.size(); i++) {
+        assertEquals(new Success(Optional.of(Integer.toString(i))), responses.get(i).get());
+      }
+      // one after the other they would take 50 seconds
+      assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(delay.multipliedBy(100)) < 0);
+    }
+  }
+
+  @Test
+  void testFailedConnectionFailsTheRequestsInFlight() throws Exception {
+    try (var server = RpcServer.start(LOOPBACK, StackCommand.class, StackResponse.class, command -> switch (command) {
+      case Push ignored -> {
+        sleep(Duration.ofSeconds(30));
+        yield new Failure("too late");
+      }
+      case Pop ignored -> throw new IllegalStateException("pop fails");
+      case Peek ignored -> new Failure("peek");
+    }); var client = RpcClient.connect(server.address(), StackCommand.class, StackResponse.class)) {
+      final CompletableFuture<StackResponse> waiting = client.send(new Push("x"));
+      assertEquals(new Failure("peek"), client.call(new Peek()));
+      assertThrows(IOException.class, () -> client.call(new Pop()));
+      final var failed = assertThrows(ExecutionException.class, waiting::get);
+      assertInstanceOf(IOException.class, failed.getCause());
+      assertTrue(client.send(new Peek()).isCompletedExceptionally());
+    }
+  }
+}
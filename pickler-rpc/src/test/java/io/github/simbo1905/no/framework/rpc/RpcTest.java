@@ -0,0 +1,115 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework.rpc;
+
+import io.github.simbo1905.no.framework.protocol.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests for [RpcServer] and [RpcClient] on the loopback interface.
+class RpcTest {
+
+  static final InetSocketAddress LOOPBACK = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+  /// A stack service whose handler the compiler checks handles every command.
+  static RpcServer<StackCommand, StackResponse> stackServer(Deque<String> stack) throws IOException {
+    return RpcServer.start(LOOPBACK, StackCommand.class, StackResponse.class, command -> switch (command) {
+      case Push push -> {
+        stack.push(push.item());
+        yield new Success(Optional.empty());
+      }
+      case Pop ignored -> Optional.ofNullable(stack.poll()).<StackResponse>map(item -> new Success(Optional.of(item)))
+          .orElse(new Failure("empty"));
+      case Peek ignored -> new Success(Optional.ofNullable(stack.peek()));
+    });
+  }
+
+  @Test
+  void testCallsAreAnsweredInOrder() throws IOException {
+    try (var server = stackServer(new ConcurrentLinkedDeque<>());
+         var client = RpcClient.connect(server.address(), StackCommand.class, StackResponse.class)) {
+      assertEquals(new Success(Optional.empty()), client.call(new Push("a")));
+      assertEquals(new Success(Optional.empty()), client.call(new Push("b")));
+      assertEquals(new Success(Optional.of("b")), client.call(new Peek()));
+      assertEquals(new Success(Optional.of("b")), client.call(new Pop()));
+      assertEquals(new Success(Optional.of("a")), client.call(new Pop()));
+      assertEquals(new Failure("empty"), client.call(new Pop()));
+    }
+  }
+
+  @Test
+  void testManyClientsOnVirtualThreads() throws Exception {
+    try (var server = RpcServer.start(LOOPBACK, StackCommand.class, StackResponse.class, command -> switch (command) {
+      case Push push -> new Success(Optional.of(push.item()));
+      case Pop ignored -> new Failure("pop");
+      case Peek ignored -> new Failure("peek");
+    }); var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      final List<Future<Integer>> results = new ArrayList<>();
+      for (int c = 0; c < 20; c++) {
+        final int id = c;
+        results.add(executor.submit(() -> {
+          try (var client = RpcClient.connect(server.address(), StackCommand.class, StackResponse.class)) {
+            return (int) IntStream.range(0, 500)
+                .filter(i -> call(client, new Push(id + ":" + i)).equals(new Success(Optional.of(id + ":" + i))))
+                .count();
+          }
+        }));
+      }
+      for (Future<Integer> result : results) {
+        assertEquals(500, result.get());
+      }
+    }
+  }
+
+  public record Chunks(int id, List<String> parts) {
+  }
+
+  @Test
+  void testSharedClientAndMessagesLargerThanTheBuffers() throws Exception {
+    try (var server = RpcServer.start(LOOPBACK, Chunks.class, Chunks.class,
+        chunks -> new Chunks(chunks.id(), chunks.parts().reversed()));
+         var client = RpcClient.connect(server.address(), Chunks.class, Chunks.class);
+         var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      final List<Chunks> requests = IntStream.range(0, 8)
+          .mapToObj(i -> new Chunks(i, IntStream.range(0, 10 * i).mapToObj(p -> i + "x".repeat(20_000) + p).toList()))
+          .toList();
+      final List<Future<Chunks>> responses = requests.stream()
+          .map(request -> executor.submit(() -> client.call(request)))
+          .toList();
+      for (int i = 0; i < responses.size(); i++) {
+        assertEquals(new Chunks(i, requests.get(i).parts().reversed()), responses.get(i).get());
+      }
+    }
+  }
+
+  @Test
+  void testClosedServer() throws IOException {
+    final var server = stackServer(new ConcurrentLinkedDeque<>());
+    try (var client = RpcClient.connect(server.address(), StackCommand.class, StackResponse.class)) {
+      client.call(new Peek());
+      server.close();
+      assertThrows(IOException.class, () -> client.call(new Peek()));
+    }
+  }
+
+  static StackResponse call(RpcClient<StackCommand, StackResponse> client, StackCommand command) {
+    try {
+      return client.call(command);
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -1,21 +1,59 @@
 package io.github.simbo1905.no.framework;
 
+import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
 import java.lang.reflect.RecordComponent;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Supplier;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import static io.github.simbo1905.no.framework.Companion.*;
 import static io.github.simbo1905.no.framework.Constants.*;
+import static io.github.simbo1905.no.framework.Pickler.Anatomy.Part.*;
 import static io.github.simbo1905.no.framework.Pickler.LOGGER;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -23,8 +61,9 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 /// This interface provides type-safe serialization for records to and from ByteBuffers using reflection-free
 /// [Direct Method Handles](https://docs.oracle.com/en/java/javase/17/docs/api/java.base/java/lang/invoke/MethodHandleInfo.html#directmh).
 /// You obtain a pickler for a record type using one of two static method [Pickler#forRecord(java.lang.Class)]
-/// or [Pickler#forSealedInterface(java.lang.Class)]. The returned pickler is type-safe and are cached in a concurrent
-/// static map. The picklers can then be used to serialize and deserialize the record type to and from a ByteBuffer:
+/// or [Pickler#forSealedInterface(java.lang.Class)]. The returned pickler is type-safe and is cached against its class.
+/// Use [Pickler#preload()] to create the picklers at boot. The picklers can then be used to serialize and deserialize
+/// the record type to and from a ByteBuffer:
 ///
 ///  - `void serialize(T record, ByteBuffer buffer)` recursively loads the components reachable through record T to the buffer.
 ///  - `T deserialize(ByteBuffer buffer)` recursively unloads components from the buffer and invokes the matching constructor.
@@ -45,6 +84,9 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 /// See [Pickler#forRecord(java.lang.Class)
 /// See the [Compatibility] enum which allows for backwards and forwards compatibility between pickers.
 ///
+/// The nested types are the public API for streams, framing, diagnostics and monitoring. They are interfaces and
+/// records whose implementations are the package-private top-level classes at the end of this file.
+///
 /// Logging is done using the standard Java logging framework java.util.logger known as "jul" logging.
 /// There are ways to bridge that to other logging frameworks like SLF4J or Log4j2.
 /// Errors are logged at the SEVERE level. If backwards compatibility is enabled, warnings are logged at the WARNING level.
@@ -106,8 +148,443 @@ public interface Pickler<T> {
   /// Returns the compatibility mode for this pickler. See [Compatibility] for details of how to set via a system property.
   Compatibility compatibility();
 
+  /// Service provider interface for record accessors that are generated at build time by the
+  /// `no-framework-pickler-processor` annotation processor. Implementations are discovered with
+  /// [java.util.ServiceLoader] from `META-INF/services/io.github.simbo1905.no.framework.Pickler$Precompiled` with the
+  /// class loader of the record class when its pickler is created. Only a provider class that implements
+  /// `Precompiled` of that record class is instantiated.
+  ///
+  /// When [Pickler#forRecord(java.lang.Class)] finds an implementation for a record class it skips the reflective
+  /// lookup of record components and constructors. The encoding logic is shared with the reflective path so the
+  /// bytes on the wire are identical and the [Compatibility] modes behave the same way.
+  ///
+  /// @param <R> The record type
+  interface Precompiled<R extends Record> {
+
+    /// @return The record class that this provider handles
+    Class<R> recordClass();
+
+    /// @return The number of record components which is the parameter count of the canonical constructor
+    int componentCount();
+
+    /// @return The parameter counts of the constructors which must include the canonical constructor
+    int[] constructorArities();
+
+    /// Returns the value of the component at the given position in canonical order.
+    /// @param record The record to read
+    /// @param index The component index
+    /// @return The component value with primitives boxed
+    Object component(R record, int index);
+
+    /// Invokes the constructor whose parameter count matches the number of components.
+    /// @param components The component values in canonical order
+    /// @return The new record instance
+    R newInstance(Object[] components);
+  }
+
+  /// Generates instances of any record type or sealed interface that a pickler supports. It fills primitives and
+  /// their boxes, strings, UUIDs, enums, optionals, lists, maps, arrays, nested records and the permitted records of
+  /// nested sealed interfaces. Use it for benchmark data, warm-up and to model the encoded size of message types.
+  ///
+  /// The same seed always produces the same sequence of instances:
+  ///
+  /// ```
+  /// List<Animal> animals = Pickler.Samples.withSeed(42).withMaxSize(3).stream(Animal.class).limit(100).toList();
+  /// ```
+  ///
+  /// Instances are created with the same constructors that [Pickler#deserialize] uses so a record that validates its
+  /// components may reject a generated value, in which case an IllegalArgumentException is thrown.
+  ///
+  /// @param seed The seed of the random values
+  /// @param maxDepth Records nested deeper than this are null so that recursive types end
+  /// @param maxSize The maximum length of strings, arrays, lists and maps
+  record Samples(long seed, int maxDepth, int maxSize) {
+
+    public Samples {
+      if (maxDepth < 0 || maxSize < 0) {
+        throw new IllegalArgumentException("maxDepth and maxSize must not be negative: " + maxDepth + ", " + maxSize);
+      }
+    }
+
+    /// @return Samples with a maximum depth of 4 and a maximum size of 8
+    public static Samples withSeed(long seed) {
+      return new Samples(seed, 4, 8);
+    }
+
+    public Samples withMaxDepth(int maxDepth) {
+      return new Samples(seed, maxDepth, maxSize);
+    }
+
+    public Samples withMaxSize(int maxSize) {
+      return new Samples(seed, maxDepth, maxSize);
+    }
+
+    /// @return The first instance of the sequence for this seed
+    public <T> T sample(Class<T> type) {
+      return stream(type).findFirst().orElseThrow();
+    }
+
+    /// @return An infinite sequential stream of instances that is the same for the same seed
+    public <T> Stream<T> stream(Class<T> type) {
+      if (!type.isRecord() && !type.isSealed()) {
+        throw new IllegalArgumentException("Samples are generated for records and sealed interfaces but got " + type.getName());
+      }
+      final SplittableRandom random = new SplittableRandom(seed);
+      return Stream.generate(() -> type.cast(Companion.sampleValue(this, random, type, 0)));
+    }
+  }
+
+  /// Attributes every byte of pickled messages to the record component that holds it, such as `InternalNode.name`,
+  /// and to the [Part] of the encoding that it is. The count of components that starts each record is attributed to
+  /// the record and the class name that a sealed interface writes is attributed to the interface. Read a sample of
+  /// messages and print the table to see which fields to restructure:
+  ///
+  /// ```
+  /// Pickler.Anatomy anatomy = Pickler.Anatomy.of(TreeNode.class, buffers);
+  /// System.out.println(anatomy.table());
+  /// ```
+  ///
+  /// @param messages The number of messages read
+  /// @param fields The bytes of each part of the encoding keyed by the field that holds them
+  record Anatomy(long messages, Map<String, Map<Part, Long>> fields) {
+
+    public enum Part {MARKER, CLASS_NAME, CLASS_REFERENCE, LENGTH, VALUE}
+
+    public Anatomy {
+      fields = fields.entrySet().stream()
+          .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> Map.copyOf(e.getValue())));
+    }
+
+    /// Reads one message from the position of each buffer, which is where the message was written, and leaves the
+    /// position after the message as [Pickler#deserialize] does. The records are not created.
+    /// @param type The record type or sealed interface of the messages
+    /// @param buffers Buffers positioned at messages written by the pickler for the type
+    /// @return The bytes of the messages by field and part
+    public static Anatomy of(Class<?> type, Collection<ByteBuffer> buffers) {
+      return PayloadAnatomy.of(type, buffers);
+    }
+
+    /// @return The bytes of a part of the encoding of the field across all the messages
+    public long bytes(String field, Part part) {
+      return fields.getOrDefault(field, Map.of()).getOrDefault(part, 0L);
+    }
+
+    /// @return The bytes of a part of the encoding across all the messages
+    public long bytes(Part part) {
+      return fields.values().stream().mapToLong(parts -> parts.getOrDefault(part, 0L)).sum();
+    }
+
+    /// @return The bytes of all the messages
+    public long bytes() {
+      return fields.values().stream().flatMap(parts -> parts.values().stream()).mapToLong(Long::longValue).sum();
+    }
+
+    /// @return A table of the fields by their total bytes, largest first, with a column for each [Part]
+    public String table() {
+      return PayloadAnatomy.table(this);
+    }
+  }
+
+  /// Callbacks around every top level [#serialize] and [#deserialize] for tracing and metrics backends.
+  /// Implementations are discovered with [java.util.ServiceLoader] from
+  /// `META-INF/services/io.github.simbo1905.no.framework.Pickler$Listener` or registered with [#addListener].
+  /// When no listener is installed each operation only checks a constant that is null. Callbacks run on the thread
+  /// that calls the pickler so they should be quick and must not throw. A sealed interface delegates to the pickler of
+  /// the record so its callbacks enclose those of the record. `end` is also called when the operation throws, with
+  /// the position that the buffer had reached.
+  interface Listener {
+
+    enum Operation {SERIALIZE, DESERIALIZE}
+
+    /// @param operation What the pickler is about to do
+    /// @param type The record type or sealed interface of the pickler
+    /// @param position The buffer position where the message starts
+    void begin(Operation operation, Class<?> type, int position);
+
+    /// @param operation What the pickler did
+    /// @param type The record type or sealed interface of the pickler
+    /// @param position The buffer position after the message
+    /// @param bytes The size of the message
+    void end(Operation operation, Class<?> type, int position, int bytes);
+  }
+
+  /// Counters for the messages of one record type. When a record pickler is created its counters are published in the
+  /// background on the platform MBean server as `io.github.simbo1905.no.framework:type=Pickler,name=<class name>`.
+  /// Setting the system property `no.framework.Pickler.Jmx` to `false` turns off both the counting and the publishing.
+  /// Only the top level message is counted. A message written by a sealed interface is counted once against its
+  /// record so the counters of a sealed interface stay at zero. Obtain them with [#metrics(Class)].
+  interface MetricsMXBean {
+    /// @return The binary name of the record type or sealed interface
+    String getType();
+
+    long getMessagesSerialized();
+
+    long getBytesSerialized();
+
+    long getMessagesDeserialized();
+
+    long getBytesDeserialized();
+
+    /// @return The largest message written or read
+    long getMaxMessageSize();
+
+    /// @return The mean time to decode a message from one in every 64 messages or zero when none were timed
+    double getAverageDecodeNanos();
+
+    /// @return How many messages were decoded with a fallback constructor for an older schema
+    long getFallbackConstructorHits();
+
+    /// Sets every counter to zero
+    void reset();
+  }
+
+  /// Keeps a copy of the messages that were slower or larger than a threshold in a bounded ring so that pathological
+  /// payloads seen in production can be replayed with [Anatomy] or in a benchmark. Install one with [#startCapture]
+  /// and [#dump] it when needed, which can also be done over JMX as
+  /// `io.github.simbo1905.no.framework:type=Capture` unless the system property `no.framework.Pickler.Jmx` is
+  /// `false`. While a capture is installed record picklers read the clock around each top level operation. A message
+  /// of a sealed interface is captured as the message of its record. When the ring is full the oldest is replaced.
+  interface Capture extends CaptureMXBean {
+
+    /// A captured message.
+    /// @param epochMillis When the operation finished
+    /// @param operation Whether the message was written or read
+    /// @param type The binary name of the record type
+    /// @param nanos How long the operation took
+    /// @param offset The buffer position that the message was written at or read from
+    /// @param bytes The message which [#buffer()] places at its offset to pass to [Pickler#deserialize] or [Anatomy#of]
+    public record Message(long epochMillis, Listener.Operation operation, String type, long nanos, int offset,
+                          byte[] bytes) {
+      /// Class names that repeat are written as references to the buffer position of their first occurrence so the
+      /// bytes are read from the same position that they were written at.
+      /// @return A buffer positioned at the message
+      public ByteBuffer buffer() {
+        return ByteBuffer.allocate(offset + bytes.length).put(offset, bytes).position(offset);
+      }
+    }
+
+    /// @return The captured messages from the oldest to the newest
+    List<Message> messages();
+
+    /// Writes the captured messages to a file that [#read(Path)] loads.
+    /// @param file The file to create or replace
+    void dump(Path file) throws IOException;
+
+    /// @param file A file written by [#dump(Path)]
+    /// @return The messages in the file from the oldest to the newest
+    static List<Message> read(Path file) throws IOException {
+      return CaptureRing.read(file);
+    }
+  }
+
+  /// The JMX view of the installed [Capture].
+  interface CaptureMXBean {
+    long getSlowerThanNanos();
+
+    int getLargerThan();
+
+    int getCapacity();
+
+    /// @return How many messages have been captured including those that the ring no longer holds
+    long getCaptured();
+
+    /// @param file The path of the file to write on the host of the JVM
+    void dump(String file) throws IOException;
+  }
+
+  /// Writes messages one after another to a blocking channel through a buffer that is written out each time it
+  /// fills, so a batch of any number of messages is written with a fixed amount of memory. Each message must fit in
+  /// the buffer so obtain one with a buffer as large as the largest message from [Pickler#writer(WritableByteChannel, int)].
+  /// It is not thread safe.
+  /// @param <T> The type of the messages
+  interface MessageWriter<T> extends Closeable, Flushable {
+
+    /// Encodes the message after any that are buffered. Messages are not null so that [MessageReader#read()] can
+    /// tell the end of the stream apart.
+    /// @param message The message to write
+    /// @throws IllegalArgumentException If the message is larger than the buffer in which case nothing is written
+    void write(T message) throws IOException;
+  }
+
+  /// Reads messages one after another from a blocking channel without knowing their size. It feeds each read of a
+  /// fixed size buffer to a [ResumableDecoder] which keeps its place when a message is not all there, so a message of
+  /// any size is decoded once. Obtain one with [Pickler#reader]. It is not thread safe.
+  /// @param <T> The type of the messages
+  interface MessageReader<T> extends Closeable {
+
+    /// @return The next message or empty at the end of the stream
+    /// @throws EOFException If the stream ends part way through a message
+    Optional<T> read() throws IOException;
+  }
+
+  /// Frames messages for stream transports such as TCP. Each frame is a varint length of the rest of the frame, a
+  /// varint tag of the record type and the message of the record pickler. For a sealed interface the tag is the
+  /// position of the record in the permits clauses, depth first, which replaces the class name that
+  /// [Pickler#forSealedInterface] writes. Both ends must have the same permitted records so add new records at the
+  /// end. Many frames can be gathered into one buffer with [#encode(List, ByteBuffer)] and a [Decoder] yields whole
+  /// messages from partial reads. A framing from [#correlated] writes a varint correlation id before the tag so that
+  /// many requests can be in flight on one connection and their responses can arrive in any order. Encoding is thread
+  /// safe.
+  ///
+  /// ```
+  /// Pickler.Framing<StackCommand> framing = Pickler.Framing.of(StackCommand.class);
+  /// framing.encode(commands, buffer);
+  /// Pickler.Framing.Decoder<StackCommand> decoder = framing.decoder();
+  /// while (decoder.read(channel) >= 0) {
+  ///   for (Optional<StackCommand> command = decoder.next(); command.isPresent(); command = decoder.next()) {
+  ///     // ...
+  ///   }
+  /// }
+  /// ```
+  /// @param <T> The record type or sealed interface of the messages
+  interface Framing<T> {
+
+    /// The largest frame that a decoder accepts by default so that a corrupt or hostile length cannot exhaust the heap.
+    int MAX_FRAME_SIZE_DEFAULT = 16 * 1024 * 1024;
+
+    /// @param type A record type or sealed interface
+    /// @return The framing for the messages of the type
+    static <T> Framing<T> of(Class<T> type) {
+      return new FrameCodec<>(type, false);
+    }
+
+    /// @param type A record type or sealed interface
+    /// @return The framing for the messages of the type with a correlation id in each frame
+    static <T> Framing<T> correlated(Class<T> type) {
+      return new FrameCodec<>(type, true);
+    }
+
+    /// Appends a frame for the message at the position of the buffer.
+    /// @param message The message which is not null
+    /// @param buffer The buffer to write into
+    /// @throws BufferOverflowException If the frame does not fit in which case the position is unchanged
+    void encode(T message, ByteBuffer buffer);
+
+    /// Appends a frame for the message with a correlation id at the position of the buffer.
+    /// @param correlationId An id that is not negative which the [Decoder] returns from [Decoder#correlationId]
+    /// @param message The message which is not null
+    /// @param buffer The buffer to write into
+    /// @throws BufferOverflowException If the frame does not fit in which case the position is unchanged
+    void encode(int correlationId, T message, ByteBuffer buffer);
+
+    /// Gathers as many of the messages as fit into the buffer so that they can be sent with one write.
+    /// @param messages The messages to frame in order
+    /// @param buffer The buffer to write into
+    /// @return How many of the messages were framed
+    int encode(List<? extends T> messages, ByteBuffer buffer);
+
+    /// @return A decoder that starts with a 64 KiB buffer and accepts frames of up to [#MAX_FRAME_SIZE_DEFAULT]
+    default Decoder<T> decoder() {
+      return decoder(Companion.STREAM_CHUNK_SIZE, MAX_FRAME_SIZE_DEFAULT);
+    }
+
+    /// @param initialSize The initial size of the buffer that holds partial frames
+    /// @param maxFrameSize The largest frame to accept
+    /// @return A decoder of frames
+    Decoder<T> decoder(int initialSize, int maxFrameSize);
+
+    /// Accumulates bytes as they arrive and decodes the messages of whole frames in place. The buffer is compacted
+    /// before each read and only grows when a frame is larger than it. It is not thread safe.
+    /// @param <T> The record type or sealed interface of the messages
+    interface Decoder<T> {
+
+      /// Reads once from the channel into the buffer which may be a non-blocking channel.
+      /// @return The number of bytes read which is `-1` at the end of the stream
+      int read(ReadableByteChannel channel) throws IOException;
+
+      /// Copies bytes that were read elsewhere into the buffer.
+      /// @param bytes The bytes which are all consumed
+      void feed(ByteBuffer bytes);
+
+      /// @return The correlation id of the frame of the last message that [#next] returned from a [Framing#correlated]
+      int correlationId();
+
+      /// @return The message of the next whole frame or empty when the frame has not all arrived
+      /// @throws IllegalArgumentException If the frame is invalid
+      Optional<T> next();
+    }
+  }
+
+  /// Decodes a message from fragments of it as they arrive, such as the reads of a non-blocking socket, without
+  /// staging the whole message in one buffer. It reads what it can of each fragment, keeps the records, collections and
+  /// arrays that are part way through on a stack and resumes from them when it is given the next fragment. Strings and
+  /// byte arrays are copied straight into the arrays that they are created from. A fragment may hold the end of one
+  /// message and the start of the next so call [#decode] until the fragment has no bytes remaining. It accepts the
+  /// messages that [Pickler#forRecord] or [Pickler#forSealedInterface] write for the type at the start of a buffer,
+  /// as the [MessageWriter] and [Framing] do, other than null messages, and counts them in the [MetricsMXBean] of the
+  /// type. Call [#reset] before reusing it after it throws. It is not
+  /// thread safe.
+  ///
+  /// ```
+  /// Pickler.ResumableDecoder<StackCommand> decoder = Pickler.ResumableDecoder.of(StackCommand.class);
+  /// while (channel.read(buffer.clear()) > 0) {
+  ///   buffer.flip();
+  ///   while (buffer.hasRemaining()) {
+  ///     decoder.decode(buffer).ifPresent(this::handle);
+  ///   }
+  /// }
+  /// ```
+  /// @param <T> The record type or sealed interface of the messages
+  interface ResumableDecoder<T> {
+
+    /// @param type The record type or sealed interface of the messages
+    /// @return A decoder that is waiting for the start of a message
+    static <T> ResumableDecoder<T> of(Class<T> type) {
+      return new IncrementalDecoder<>(type);
+    }
+
+    /// Reads the fragment up to the end of the current message and leaves the position after it.
+    /// @param fragment The next bytes of the messages
+    /// @return The message when the fragment completes it or empty when more bytes are needed
+    Optional<T> decode(ByteBuffer fragment);
+
+    /// @return True when the decoder has read part of a message
+    boolean partial();
+
+    /// Discards any partial message such as when a connection is reset.
+    void reset();
+  }
+
+  /// @param channel A blocking channel such as a [java.nio.channels.FileChannel] or a blocking socket
+  /// @return A writer of messages through a 64 KiB buffer that writes a new message after the last
+  default MessageWriter<T> writer(WritableByteChannel channel) {
+    return writer(channel, Companion.STREAM_CHUNK_SIZE);
+  }
+
+  /// @param channel A blocking channel such as a [java.nio.channels.FileChannel] or a blocking socket
+  /// @param bufferSize The size of the buffer which is the largest message that the writer accepts
+  /// @return A writer of messages through a buffer of the size that writes a new message after the last
+  default MessageWriter<T> writer(WritableByteChannel channel, int bufferSize) {
+    return new ChannelMessageWriter<>(this, channel, bufferSize);
+  }
+
+  /// @param out Where to write the messages
+  /// @return A writer of messages through a 64 KiB buffer that flushes the stream when it is flushed
+  default MessageWriter<T> writer(OutputStream out) {
+    return writer(out, Companion.STREAM_CHUNK_SIZE);
+  }
+
+  /// @param out Where to write the messages
+  /// @param bufferSize The size of the buffer which is the largest message that the writer accepts
+  /// @return A writer of messages through a buffer of the size that flushes the stream when it is flushed
+  default MessageWriter<T> writer(OutputStream out, int bufferSize) {
+    return new ChannelMessageWriter<>(this, Channels.newChannel(out), out, bufferSize);
+  }
+
+  /// @param channel A blocking channel such as a [java.nio.channels.FileChannel] or a blocking socket
+  /// @return A reader of the messages that a [MessageWriter] wrote
+  default MessageReader<T> reader(ReadableByteChannel channel) {
+    return new ChannelMessageReader<>(this, channel, Companion.STREAM_CHUNK_SIZE);
+  }
+
+  /// @param in Where to read the messages from
+  /// @return A reader of the messages that a [MessageWriter] wrote
+  default MessageReader<T> reader(InputStream in) {
+    return new ChannelMessageReader<>(this, Channels.newChannel(in), Companion.STREAM_CHUNK_SIZE);
+  }
+
   /// Obtains the cached a pickler for a record type or creates a new one and adds it into the cache.
-  /// This method uses a concurrent map to store the picklers so it is thread-safe.
+  /// This method is thread-safe and concurrent callers wait for the first caller to create the pickler.
   /// Throws IllegalArgumentException at runtime if:
   /// - The supplied class is not a record type.
   /// - Any components of the record are not types that are supported by this library.
@@ -117,8 +594,8 @@ public interface Pickler<T> {
   }
 
   /// Obtains the cached a pickler for a sealed interface that creates picklers for all permitted record types.
-  /// It creates a record pickler for each permitted record type and caches them in the returned object.
-  /// This method uses a concurrent map to store the top-level picker that is returned so it is thread-safe.
+  /// The record picklers for the permitted record types are obtained with [#forRecord] when first used.
+  /// This method is thread-safe and concurrent callers wait for the first caller to create the pickler.
   /// Throws IllegalArgumentException at runtime if:
   /// - The supplied class is not a sealed interface.
   /// - Any permitted subclasses are not record types that are supported by this library.
@@ -128,6 +605,73 @@ public interface Pickler<T> {
     return SealedPickler.create(sealedClass);
   }
 
+  /// Creates the picklers for the types listed in every `META-INF/no-framework-pickler/preload` manifest visible to
+  /// the thread context class loader. Call this during application boot so that the first request does not pay to
+  /// create picklers. See [#preload(java.util.Collection)].
+  static void preload() {
+    final ClassLoader loader = Optional.ofNullable(Thread.currentThread().getContextClassLoader())
+        .orElse(Pickler.class.getClassLoader());
+    Companion.preload(Companion.readManifests(loader));
+  }
+
+  /// Creates the picklers for the record types and sealed interfaces in parallel on the common fork join pool.
+  /// The records permitted by a sealed interface are created too. Each record is then round tripped with a sample
+  /// instance so that the JIT compiles its paths. The number of round trips is set with the system property
+  /// `no.framework.Pickler.WarmupIterations` which defaults to 1000 and where `0` skips the warm-up.
+  /// Throws IllegalArgumentException if a type is not supported, as for [#forRecord] and [#forSealedInterface].
+  /// @param types The root record types and sealed interfaces
+  static void preload(Collection<Class<?>> types) {
+    Companion.preload(types);
+  }
+
+  /// Reads a manifest of one binary class name per line where blank lines and lines starting with `#` are ignored.
+  /// Names that cannot be loaded are logged and skipped as a manifest may have been recorded by an older release.
+  /// @param reader The manifest
+  /// @param loader The class loader to load the named types with
+  /// @return The types to pass to [#preload(java.util.Collection)]
+  static List<Class<?>> readManifest(Reader reader, ClassLoader loader) throws IOException {
+    return Companion.readManifest(reader, loader);
+  }
+
+  /// Writes a manifest of every type that has a pickler in this JVM so that a later run can [#preload()] them.
+  /// Save it as `META-INF/no-framework-pickler/preload` on the classpath or read it with [#readManifest].
+  /// @param writer Where to write the manifest
+  static void writeManifest(Writer writer) throws IOException {
+    Companion.writeManifest(writer);
+  }
+
+  /// @param type A record type or sealed interface
+  /// @return The counters for the type which stay at zero until it has a pickler
+  static MetricsMXBean metrics(Class<?> type) {
+    return Companion.METRICS.get(type);
+  }
+
+  /// Installs a listener on every pickler in addition to those found with [java.util.ServiceLoader].
+  /// @param listener The listener to call around each operation
+  static void addListener(Listener listener) {
+    Companion.addListener(listener);
+  }
+
+  /// @param listener A listener that was added with [#addListener] or discovered with [java.util.ServiceLoader]
+  static void removeListener(Listener listener) {
+    Companion.removeListener(listener);
+  }
+
+  /// Installs a [Capture] of every record pickler's messages that are slower or larger than the thresholds in place
+  /// of any capture that is already installed.
+  /// @param slowerThan Capture operations that take at least this long
+  /// @param largerThan Capture messages of at least this many bytes
+  /// @param capacity How many messages to keep
+  /// @return The capture to read or dump
+  static Capture startCapture(Duration slowerThan, int largerThan, int capacity) {
+    return Companion.startCapture(new CaptureRing(slowerThan, largerThan, capacity));
+  }
+
+  /// @return The capture that was installed which still holds its messages, or empty when there was none
+  static Optional<Capture> stopCapture() {
+    return Companion.stopCapture();
+  }
+
   /// Recursively loads the components reachable through record into the buffer. It always writes out all the components.
   /// Older codebase can be set to ignore the extra fields in the buffer if the compatibility mode is set to `FORWARDS`.
   /// @param record The record to serialize
@@ -247,55 +791,79 @@ abstract class SealedPickler<S> implements Pickler<S> {
   }
 
   static <S> Pickler<S> create(Class<S> sealedClass) {
-    return getOrCreate(sealedClass, () -> manufactureSealedPickler(sealedClass));
+    return getOrCreate(sealedClass);
+  }
+
+  /// @return The sealed interface of the messages
+  abstract Class<S> type();
+
+  /// The length of the prefix that all the names share, which is the whole name when there is only one.
+  /// This is a single reduction that narrows the prefix against each name in turn.
+  static int commonPrefixLength(String[] names) {
+    return Arrays.stream(names)
+        .reduce((a, b) ->
+            !a.isEmpty() && !b.isEmpty() ?
+                a.substring(0,
+                    IntStream.range(0, Math.min(a.length(), b.length()))
+                        .filter(i -> a.charAt(i) != b.charAt(i))
+                        .findFirst()
+                        .orElse(Math.min(a.length(), b.length()))) : "")
+        .map(String::length)
+        .orElse(0);
   }
 
-  private static <S> Pickler<S> manufactureSealedPickler(Class<S> sealedClass) {
+  /// The names that identify the permitted records on the wire which are their class names without the common prefix.
+  static <S> Map<Class<? extends S>, String> shortNames(Class<S> sealedClass) {
     // Get all permitted record subclasses
-    final Class<?>[] subclasses = allPermittedRecordClasses(sealedClass).toArray(Class<?>[]::new);
+    @SuppressWarnings("unchecked") final Class<? extends S>[] subclasses = allPermittedRecordClasses(sealedClass)
+        .toArray(Class[]::new);
 
-    // note that we cannot add these pickers to the cache map as we are inside a computeIfAbsent yet
-    // practically speaking mix picklers into the same logical stream  is hard so preemptive caching wasteful
-    @SuppressWarnings("unchecked") Map<Class<? extends S>, Pickler<? extends S>> subPicklers = Arrays.stream(subclasses)
-        .filter(cls -> cls.isRecord() || cls.isSealed())
-        .map(cls -> (Class<? extends S>) cls) // Safe due to sealed hierarchy
-        .collect(Collectors.toMap(
-            cls -> cls,
-            cls -> {
-              if (cls.isRecord()) {
-                // Double cast required to satisfy compiler
-                @SuppressWarnings("unchecked")
-                Class<? extends Record> recordCls = (Class<? extends Record>) cls;
-                return (Pickler<S>) manufactureRecordPickler(recordCls);
-              } else {
-                return SealedPickler.manufactureSealedPickler(cls);
-              }
-            }
-        ));
+    final int prefixLength = commonPrefixLength(Arrays.stream(subclasses).map(Class::getName).toArray(String[]::new));
+
+    return Arrays.stream(subclasses)
+        .collect(Collectors.toMap(cls -> cls, cls -> cls.getName().substring(prefixLength)));
+  }
+
+  /// Serializes a permitted record with the pickler of its own class which records no event of its own.
+  @SuppressWarnings("unchecked")
+  static <R extends Record> void serializeRecord(RecordPickler<R> pickler, Object record, ByteBuffer buffer) {
+    pickler.serialize((R) record, buffer, null);
+  }
+
+  /// Sizes a permitted record with the pickler of its own class which records no event of its own.
+  @SuppressWarnings("unchecked")
+  static <R extends Record> int sizeOfRecord(RecordPickler<R> pickler, Object record) {
+    return pickler.sizeOf((R) record, null);
+  }
+
+  static <S> Pickler<S> manufactureSealedPickler(Class<S> sealedClass) {
+    final Map<Class<? extends S>, String> shortNames = shortNames(sealedClass);
+
+    // The record picklers are obtained from the registry on first use so that a large hierarchy of rarely used
+    // records is cheap to create and each one is shared with `Pickler.forRecord`. The class value memoises the
+    // lookup so that later operations read a field of the class rather than going through the registry.
+    final ClassValue<RecordPickler<?>> subPicklers = new ClassValue<>() {
+      @Override
+      protected RecordPickler<?> computeValue(Class<?> type) {
+        return (RecordPickler<?>) Pickler.forRecord(type.asSubclass(Record.class));
+      }
+    };
 
-    final Map<Class<? extends S>, String> shortNames = subPicklers.keySet().stream().
-        collect(Collectors.toMap(
-            cls -> cls,
-            cls -> cls.getName().substring(
-                subPicklers.keySet().stream()
-                    .map(Class::getName)
-                    .reduce((a, b) ->
-                        !a.isEmpty() && !b.isEmpty() ?
-                            a.substring(0,
-                                IntStream.range(0, Math.min(a.length(), b.length()))
-                                    .filter(i -> a.charAt(i) != b.charAt(i))
-                                    .findFirst()
-                                    .orElse(Math.min(a.length(), b.length()))) : "")
-                    .orElse("").length())));
-
-    @SuppressWarnings({"unchecked", "Convert2MethodRef"}) final Map<String, Class<? extends S>> permittedRecordClasses = Arrays.stream(subclasses)
+    @SuppressWarnings("Convert2MethodRef") final Map<String, Class<? extends S>> permittedRecordClasses = shortNames.keySet().stream()
         .collect(Collectors.toMap(
             c -> shortNames.get(c),
-            c -> (Class<? extends S>) c
+            c -> c
         ));
 
+    final String sealedClassName = sealedClass.getName();
+
     return new SealedPickler<>() {
 
+      @Override
+      Class<S> type() {
+        return sealedClass;
+      }
+
       /// There is nothing effective we can do here.
       @Override
       public Compatibility compatibility() {
@@ -304,22 +872,56 @@ abstract class SealedPickler<S> implements Pickler<S> {
 
       @Override
       public void serialize(S object, ByteBuffer buffer) {
-        if (object == null) {
-          buffer.put(NULL.marker());
-          return;
+        final PicklerEvent event = PicklerEvent.serialize();
+        final int start = buffer.position();
+        final Listener listener = listener();
+        if (listener != null) {
+          listener.begin(Listener.Operation.SERIALIZE, sealedClass, start);
         }
-        @SuppressWarnings("unchecked") Class<? extends S> concreteType = (Class<? extends S>) object.getClass();
-        Pickler<? extends S> pickler = subPicklers.get(concreteType);
+        try {
+          if (object == null) {
+            buffer.put(NULL.marker());
+          } else {
+            final Class<?> concreteType = object.getClass();
 
-        writeDeduplicatedClassName(buffer, concreteType, new HashMap<>(), shortNames.get(concreteType));
+            writeDeduplicatedClassName(buffer, concreteType, new HashMap<>(), shortNames.get(concreteType));
 
-        // Delegate to subtype pickler
-        //noinspection unchecked
-        ((Pickler<Object>) pickler).serialize(object, buffer);
+            // Delegate to subtype pickler which records no event of its own
+            serializeRecord(subPicklers.get(concreteType), object, buffer);
+          }
+        } finally {
+          if (listener != null) {
+            listener.end(Listener.Operation.SERIALIZE, sealedClass, buffer.position(), buffer.position() - start);
+          }
+        }
+        if (event != null) {
+          event.emit(sealedClassName, buffer.position() - start, Compatibility.NONE);
+        }
       }
 
       @Override
       public S deserialize(ByteBuffer buffer) {
+        final PicklerEvent event = PicklerEvent.deserialize();
+        final int start = buffer.position();
+        final Listener listener = listener();
+        if (listener != null) {
+          listener.begin(Listener.Operation.DESERIALIZE, sealedClass, start);
+        }
+        final S result;
+        try {
+          result = deserializeValue(buffer);
+        } finally {
+          if (listener != null) {
+            listener.end(Listener.Operation.DESERIALIZE, sealedClass, buffer.position(), buffer.position() - start);
+          }
+        }
+        if (event != null) {
+          event.emit(sealedClassName, buffer.position() - start, Compatibility.NONE);
+        }
+        return result;
+      }
+
+      private S deserializeValue(ByteBuffer buffer) {
         // if the type is NULL, return null, else read the type identifier
         buffer.mark();
         if (buffer.get() == NULL.marker()) {
@@ -330,13 +932,20 @@ abstract class SealedPickler<S> implements Pickler<S> {
         Class<? extends S> concreteType = readClass(buffer);
 
         // Get subtype pickler
-        Pickler<? extends S> pickler = subPicklers.get(concreteType);
-
-        return pickler.deserialize(buffer);
+        return sealedClass.cast(subPicklers.get(concreteType).deserialize(buffer, null));
       }
 
       @Override
       public int sizeOf(S object) {
+        final PicklerEvent event = PicklerEvent.sizeOf();
+        final int size = sizeOfValue(object);
+        if (event != null) {
+          event.emit(sealedClassName, size, Compatibility.NONE);
+        }
+        return size;
+      }
+
+      private int sizeOfValue(S object) {
         if (object == null) {
           return 1; // Size of NULL marker
         }
@@ -347,12 +956,8 @@ abstract class SealedPickler<S> implements Pickler<S> {
         // Size of length prefix (4 bytes) plus class name bytes
         int classNameSize = 4 + classNameLength;
 
-        // Get the concrete pickler for this object type
-        @SuppressWarnings("unchecked")
-        Pickler<S> pickler = (Pickler<S>) subPicklers.get(object.getClass());
-
-        // Total size is class name size + object size
-        return classNameSize + pickler.sizeOf(object);
+        // Total size is class name size + object size from the concrete pickler for this object type
+        return classNameSize + sizeOfRecord(subPicklers.get(clazz), object);
       }
 
       private Class<? extends S> readClass(ByteBuffer buffer) {
@@ -374,10 +979,108 @@ abstract class RecordPickler<R extends Record> implements Pickler<R> {
   abstract void serializeWithMap(R object, ByteBuffer buffer, Map<Class<?>, Integer> classToOffset);
 
   static <R extends Record> Pickler<R> create(Class<R> recordClass) {
-    return getOrCreate(recordClass, () -> manufactureRecordPickler(recordClass));
+    return getOrCreate(recordClass);
   }
 
+  /// @return The record type of the messages
+  abstract Class<R> type();
+
   abstract R deserializeWithMap(ByteBuffer buffer, Map<Integer, Class<?>> bufferOffset2Class);
+
+  @Override
+  public final void serialize(R object, ByteBuffer buffer) {
+    serialize(object, buffer, PicklerEvent.serialize());
+  }
+
+  @Override
+  public final R deserialize(ByteBuffer buffer) {
+    return deserialize(buffer, PicklerEvent.deserialize());
+  }
+
+  @Override
+  public final int sizeOf(R object) {
+    return sizeOf(object, PicklerEvent.sizeOf());
+  }
+
+  /// The operations record the event that they are given, which is null when the operation is nested in another or
+  /// no recording has the event enabled.
+  abstract void serialize(R object, ByteBuffer buffer, PicklerEvent event);
+
+  abstract R deserialize(ByteBuffer buffer, PicklerEvent event);
+
+  abstract int sizeOf(R object, PicklerEvent event);
+
+  /// Creates an instance from component values in canonical order using the same constructors as [#deserialize].
+  abstract R newInstance(Object[] components);
+
+  /// Creates an instance from the component values of a message which may have been written by another version of the
+  /// record. The count is checked against the [Compatibility] of the pickler and extra components are dropped when
+  /// they may be.
+  abstract R fromComponents(Object[] components);
+
+  /// @return true once this pickler calls its handles with `invokeExact`
+  abstract boolean promoted();
+
+  /// The method handles that the interpreter invokes. They are adapted to [Companion#ACCESSOR_TYPE] and
+  /// [Companion#CONSTRUCTOR_TYPE] as the pickler is created so that every call is an `invokeExact`, unless the pickler
+  /// is tiered when they are adapted once it is hot.
+  ///
+  /// @param accessors The component accessors in canonical order
+  /// @param canonical The canonical constructor
+  /// @param fallbacks Constructors for schema evolution keyed by their parameter count
+  /// @param exact Whether the handles are adapted for `invokeExact`
+  record Invokers(MethodHandle[] accessors, MethodHandle canonical, Map<Integer, MethodHandle> fallbacks,
+                  boolean exact) {
+
+    Object component(Record record, int index) throws Throwable {
+      return exact ? (Object) accessors[index].invokeExact(record) : accessors[index].invokeWithArguments(record);
+    }
+
+    Object construct(MethodHandle constructor, Object[] components) throws Throwable {
+      return exact ? (Object) constructor.invokeExact(components) : constructor.invokeWithArguments(components);
+    }
+
+    /// Adapting spins method handle classes for every accessor and constructor.
+    Invokers adapt() {
+      if (exact) {
+        return this;
+      }
+      final MethodHandle[] adaptedAccessors = Arrays.stream(accessors)
+          .map(Companion::accessorInvoker)
+          .toArray(MethodHandle[]::new);
+      final Map<Integer, MethodHandle> adaptedFallbacks = fallbacks.entrySet().stream()
+          .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> constructorInvoker(entry.getValue())));
+      return new Invokers(adaptedAccessors, constructorInvoker(canonical), adaptedFallbacks, true);
+    }
+  }
+}
+
+/// The handles of one record pickler. When [Companion#TIER_THRESHOLD_PROPERTY] is set a pickler starts with the handles
+/// as resolved, which are cheap to create, and adapts them for `invokeExact` on the thread whose operation reaches the
+/// threshold. Adapting spins classes for every accessor and constructor so a protocol with hundreds of rarely used
+/// records only pays for the hot ones. The count stops once the handles are adapted so a hot pickler only reads a
+/// volatile field.
+final class InvokerTier {
+  final int threshold;
+  volatile RecordPickler.Invokers invokers;
+  /// Counts operations until the handles are adapted. Racing threads may lose counts which only delays adapting.
+  int operations;
+
+  InvokerTier(RecordPickler.Invokers invokers, int threshold) {
+    this.invokers = invokers;
+    this.threshold = threshold;
+  }
+
+  /// @return The handles to call for this operation
+  RecordPickler.Invokers invokers() {
+    final RecordPickler.Invokers current = invokers;
+    return current.exact() || ++operations < threshold ? current : adapt();
+  }
+
+  synchronized RecordPickler.Invokers adapt() {
+    invokers = invokers.adapt();
+    return invokers;
+  }
 }
 
 /// Enum containing constants used throughout the Pickler implementation
@@ -436,41 +1139,449 @@ enum Constants {
 
 class Companion {
 
-  public static final Map<Class<?>, Pickler<?>> REGISTRY = new ConcurrentHashMap<>();
+  /// The picklers are stored against the class itself rather than in a static map. A static map strongly references
+  /// every class that was ever pickled which pins its class loader, so a host that redeploys plugins, or a test that
+  /// compiles record versions at runtime, leaks metaspace. A [ClassValue] is unloaded along with the class and a
+  /// lookup is a field read on the class rather than a hash probe.
+  static final ClassValue<Registration> REGISTRY = new ClassValue<>() {
+    @Override
+    protected Registration computeValue(Class<?> type) {
+      return new Registration();
+    }
+  };
+
+  /// The registry entry for one class. Creating it is cheap so that the reflective work is not done inside the
+  /// [ClassValue] where racing threads would each build a pickler. The first caller claims the entry and builds
+  /// the pickler while the other callers wait on the future without holding any lock.
+  static final class Registration {
+    final CompletableFuture<Pickler<?>> pickler = new CompletableFuture<>();
+    final AtomicReference<Thread> builder = new AtomicReference<>();
+  }
 
-  // In Pickler interface
   @SuppressWarnings("unchecked")
-  static <T> Pickler<T> getOrCreate(Class<T> type, Supplier<Pickler<T>> supplier) {
-    return (Pickler<T>) REGISTRY.computeIfAbsent(type, k -> supplier.get());
+  static <T> Pickler<T> getOrCreate(Class<T> type) {
+    final Registration registration = REGISTRY.get(type);
+    if (!registration.pickler.isDone()) {
+      final Thread current = Thread.currentThread();
+      if (registration.builder.compareAndSet(null, current)) {
+        try {
+          // the builder is cleared once the future is done so a caller that raced the previous builder must not rebuild
+          if (!registration.pickler.isDone()) {
+            buildPickler(type, registration);
+          }
+        } finally {
+          // the future is done so the thread is no longer needed to detect recursion and must not be pinned
+          registration.builder.set(null);
+        }
+      } else if (registration.builder.get() == current) {
+        // waiting on our own future would never return
+        final var msg = "Recursive pickler creation for " + type.getName();
+        LOGGER.severe(() -> msg);
+        throw new IllegalArgumentException(msg);
+      }
+    }
+    try {
+      return (Pickler<T>) registration.pickler.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      } else if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalArgumentException("Failed to create pickler for " + type.getName(), e.getCause());
+    }
   }
 
-  /// Writes a short value (0-255) as a single unsigned byte to the buffer.
-  ///
-  /// @param buffer The buffer to write to.
-  /// @param value The short value (must be between 0 and 255).
-  /// @throws IllegalArgumentException if the value is outside the 0-255 range.
-  static void writeUnsignedByte(ByteBuffer buffer, short value) {
-    if (value < 0 || value > 255) {
-      throw new IllegalArgumentException("Value must be between 0 and 255, but got: " + value);
+  /// Builds the pickler and completes the future of the registration that the calling thread has claimed.
+  static void buildPickler(Class<?> type, Registration registration) {
+    try {
+      final PicklerEvent event = PicklerEvent.create();
+      final Pickler<?> pickler = type.isRecord() ?
+          manufactureRecordPickler(type.asSubclass(Record.class)) : SealedPickler.manufactureSealedPickler(type);
+      if (event != null) {
+        event.emit(type.getName(), 0, pickler.compatibility());
+      }
+      registration.pickler.complete(pickler);
+      REGISTERED.add(type);
+      if (type.isRecord()) {
+        METRICS.get(type).publish();
+      }
+    } catch (Throwable t) {
+      // forget the failure so that a later caller can retry once the cause is fixed
+      REGISTRY.remove(type);
+      registration.pickler.completeExceptionally(t);
     }
-    buffer.put((byte) value);
   }
 
-  /// Reads a single byte from the buffer and returns it as a short, treating the byte as unsigned (0-255).
-  ///
-  /// @param buffer The buffer to read from.
-  /// @return The short value (0-255).
-  static short readUnsignedByte(ByteBuffer buffer) {
-    return (short) (buffer.get() & 0xFF);
-  }
+  /// Every installed listener. Updates are rare so they copy the list and then retarget [#LISTENER_SITE].
+  static final List<Pickler.Listener> LISTENERS = new CopyOnWriteArrayList<>(loadListeners());
 
-  static void write(Map<Class<?>, Integer> classToOffset, ByteBuffer buffer, Object c) {
-    if (c == null) {
-      buffer.put(NULL.marker());
-      return;
-    }
+  /// A call site whose target returns the listener that the picklers call which is null when there are none, a single
+  /// listener as is, or else all of them in turn. The JIT compiles the target as a constant rather than reading a
+  /// volatile field on every operation, so with no listener the null check folds away. Changing the target
+  /// deoptimizes the compiled callers.
+  static final MutableCallSite LISTENER_SITE = new MutableCallSite(
+      MethodHandles.constant(Pickler.Listener.class, listener(LISTENERS)));
 
-    if (c.getClass().isArray()) {
+  static final MethodHandle LISTENER = LISTENER_SITE.dynamicInvoker();
+
+  /// @return The listener to call around an operation or null when there is none
+  static Pickler.Listener listener() {
+    try {
+      return (Pickler.Listener) LISTENER.invokeExact();
+    } catch (Throwable e) {
+      throw new IllegalStateException("A constant method handle cannot throw", e);
+    }
+  }
+
+  static void publishListener() {
+    LISTENER_SITE.setTarget(MethodHandles.constant(Pickler.Listener.class, listener(LISTENERS)));
+    MutableCallSite.syncAll(new MutableCallSite[]{LISTENER_SITE});
+  }
+
+  static List<Pickler.Listener> loadListeners() {
+    final List<Pickler.Listener> listeners = new ArrayList<>();
+    ServiceLoader.load(Pickler.Listener.class).stream().forEach(provider -> {
+      try {
+        listeners.add(provider.get());
+      } catch (ServiceConfigurationError e) {
+        LOGGER.warning(() -> "Ignoring pickler listener " + provider.type().getName() + ": " + e.getMessage());
+      }
+    });
+    return listeners;
+  }
+
+  static Pickler.Listener listener(List<Pickler.Listener> listeners) {
+    return switch (listeners.size()) {
+      case 0 -> null;
+      case 1 -> listeners.getFirst();
+      default -> new Listeners(listeners.toArray(Pickler.Listener[]::new));
+    };
+  }
+
+  static void addListener(Pickler.Listener listener) {
+    Objects.requireNonNull(listener, "listener");
+    synchronized (LISTENERS) {
+      LISTENERS.add(listener);
+      publishListener();
+    }
+  }
+
+  static void removeListener(Pickler.Listener listener) {
+    synchronized (LISTENERS) {
+      LISTENERS.remove(listener);
+      publishListener();
+    }
+  }
+
+  /// Calls several listeners in the order that they were installed.
+  record Listeners(Pickler.Listener[] all) implements Pickler.Listener {
+    @Override
+    public void begin(Operation operation, Class<?> type, int position) {
+      for (Pickler.Listener listener : all) {
+        listener.begin(operation, type, position);
+      }
+    }
+
+    @Override
+    public void end(Operation operation, Class<?> type, int position, int bytes) {
+      for (Pickler.Listener listener : all) {
+        listener.end(operation, type, position, bytes);
+      }
+    }
+  }
+
+  static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
+  /// @return The number of bytes of the unsigned LEB128 encoding of the value
+  static int varintSize(int value) {
+    return value == 0 ? 1 : (31 - Integer.numberOfLeadingZeros(value)) / 7 + 1;
+  }
+
+  /// Writes the value as unsigned LEB128 which is seven bits per byte with the high bit set on all but the last.
+  static void writeVarint(ByteBuffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /// Reads an unsigned LEB128 value without moving the position.
+  /// @return The value or `-1` when the buffer ends part way through it
+  static long peekVarint(ByteBuffer buffer, int index) {
+    long value = 0;
+    for (int i = 0; i < 5; i++) {
+      if (index + i >= buffer.limit()) {
+        return -1;
+      }
+      final byte b = buffer.get(index + i);
+      value |= (long) (b & 0x7F) << (7 * i);
+      if (b >= 0) {
+        if (value > Integer.MAX_VALUE) {
+          break;
+        }
+        return value;
+      }
+    }
+    final var msg = "Invalid varint at " + index;
+    LOGGER.severe(() -> msg);
+    throw new IllegalArgumentException(msg);
+  }
+
+  /// The installed capture which is null when there is none so that the hot path only reads the clock when needed.
+  static volatile CaptureRing CAPTURE;
+
+  static final String CAPTURE_OBJECT_NAME = "io.github.simbo1905.no.framework:type=Capture";
+
+  static synchronized Pickler.Capture startCapture(CaptureRing capture) {
+    stopCapture();
+    CAPTURE = capture;
+    if (Boolean.parseBoolean(System.getProperty(PicklerMetrics.JMX_PROPERTY, "true"))) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(capture, new ObjectName(CAPTURE_OBJECT_NAME));
+      } catch (JMException | RuntimeException e) {
+        LOGGER.warning(() -> "Cannot publish the pickler capture: " + e.getMessage());
+      }
+    }
+    return capture;
+  }
+
+  static synchronized Optional<Pickler.Capture> stopCapture() {
+    final CaptureRing capture = CAPTURE;
+    CAPTURE = null;
+    if (capture != null) {
+      try {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(CAPTURE_OBJECT_NAME);
+        if (server.isRegistered(name)) {
+          server.unregisterMBean(name);
+        }
+      } catch (JMException | RuntimeException e) {
+        LOGGER.warning(() -> "Cannot remove the pickler capture: " + e.getMessage());
+      }
+    }
+    return Optional.ofNullable(capture);
+  }
+
+  /// The counters for each type. They hold the class name rather than the class so that neither this nor the
+  /// MBean server pins the class loader.
+  static final ClassValue<PicklerMetrics> METRICS = new ClassValue<>() {
+    @Override
+    protected PicklerMetrics computeValue(Class<?> type) {
+      return new PicklerMetrics(type.getName());
+    }
+  };
+
+  /// Classes that have a pickler which [Pickler#writeManifest(java.io.Writer)] records. The keys are weak so that
+  /// recording a class does not pin its class loader.
+  static final Set<Class<?>> REGISTERED = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+  /// The classpath resource that lists the types for [Pickler#preload()]. The annotation processor writes one for the
+  /// types that it generates accessors for and [Pickler#writeManifest(java.io.Writer)] writes one at runtime.
+  static final String PRELOAD_MANIFEST = "META-INF/no-framework-pickler/preload";
+
+  /// The system property that sets how many round trips of a [Pickler.Samples] instance of each record are done by
+  /// [Pickler#preload(java.util.Collection)] so that the JIT compiles the hot paths. `0` skips the warm-up.
+  static final String WARMUP_ITERATIONS_PROPERTY = "no.framework.Pickler.WarmupIterations";
+
+  static final int WARMUP_ITERATIONS_DEFAULT = 1000;
+
+  /// The warm-up instances are small so that warming a large protocol is quick.
+  static final Pickler.Samples WARMUP_SAMPLES = new Pickler.Samples(0L, 3, 2);
+
+  static List<Class<?>> readManifest(Reader reader, ClassLoader loader) throws IOException {
+    final List<Class<?>> types = new ArrayList<>();
+    final BufferedReader lines = new BufferedReader(reader);
+    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+      final String name = line.strip();
+      if (name.isEmpty() || name.startsWith("#")) {
+        continue;
+      }
+      try {
+        types.add(Class.forName(name, false, loader));
+      } catch (ClassNotFoundException e) {
+        // a manifest recorded by a previous release may name a type that has since been removed
+        LOGGER.warning(() -> "Ignoring unknown type in pickler manifest: " + name);
+      }
+    }
+    return types;
+  }
+
+  static List<Class<?>> readManifests(ClassLoader loader) {
+    final List<Class<?>> types = new ArrayList<>();
+    try {
+      for (URL url : Collections.list(loader.getResources(PRELOAD_MANIFEST))) {
+        try (Reader reader = new InputStreamReader(url.openStream(), UTF_8)) {
+          types.addAll(readManifest(reader, loader));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read " + PRELOAD_MANIFEST, e);
+    }
+    return types;
+  }
+
+  static void writeManifest(Writer writer) throws IOException {
+    final List<String> names;
+    synchronized (REGISTERED) {
+      names = REGISTERED.stream().map(Class::getName).sorted().toList();
+    }
+    writer.write("# No Framework Pickler preload manifest\n");
+    for (String name : names) {
+      writer.write(name);
+      writer.write('\n');
+    }
+  }
+
+  static void preload(Collection<Class<?>> types) {
+    final int iterations = Integer.getInteger(WARMUP_ITERATIONS_PROPERTY, WARMUP_ITERATIONS_DEFAULT);
+    // a parallel stream runs on the common fork join pool with the calling thread helping
+    new LinkedHashSet<>(types).parallelStream().forEach(type -> {
+      final List<Class<? extends Record>> records = type.isRecord() ? List.of(type.asSubclass(Record.class)) :
+          SealedPickler.allPermittedRecordClasses(type).<Class<? extends Record>>map(c -> c.asSubclass(Record.class)).toList();
+      if (!type.isRecord()) {
+        Pickler.forSealedInterface(type);
+      }
+      records.forEach(Pickler::forRecord);
+      if (iterations > 0) {
+        records.forEach(recordClass -> warmUp(recordClass, iterations));
+      }
+    });
+  }
+
+  /// Round trips a sample instance so that the JIT compiles the paths that the record uses. This is best effort as a
+  /// record may validate its components in ways that the sample does not meet.
+  static <R extends Record> void warmUp(Class<R> recordClass, int iterations) {
+    final Pickler<R> pickler = Pickler.forRecord(recordClass);
+    try {
+      final R sample = WARMUP_SAMPLES.sample(recordClass);
+      final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(sample));
+      for (int i = 0; i < iterations; i++) {
+        buffer.clear();
+        pickler.serialize(sample, buffer);
+        buffer.flip();
+        pickler.deserialize(buffer);
+      }
+    } catch (RuntimeException e) {
+      LOGGER.warning(() -> "Skipping warm-up of " + recordClass.getName() + ": " + e.getMessage());
+    }
+  }
+
+  /// Generates a value of a type that a record component may have.
+  static Object sampleValue(Pickler.Samples samples, SplittableRandom random, java.lang.reflect.Type type, int depth) {
+    return switch (type) {
+      case WildcardType wildcard -> sampleValue(samples, random, wildcard.getUpperBounds()[0], depth);
+      case TypeVariable<?> variable -> sampleValue(samples, random, variable.getBounds()[0], depth);
+      case GenericArrayType arrayType -> sampleArray(samples, random, arrayType.getGenericComponentType(), depth);
+      default -> sampleClass(samples, random, type, depth);
+    };
+  }
+
+  /// Generates a value of a class or parameterized type.
+  static Object sampleClass(Pickler.Samples samples, SplittableRandom random, java.lang.reflect.Type type, int depth) {
+    final java.lang.reflect.Type[] arguments = type instanceof ParameterizedType parameterized ?
+        parameterized.getActualTypeArguments() : new java.lang.reflect.Type[0];
+    return switch (rawType(type)) {
+      case Class<?> c when c == boolean.class || c == Boolean.class -> random.nextBoolean();
+      case Class<?> c when c == byte.class || c == Byte.class -> (byte) random.nextInt();
+      case Class<?> c when c == short.class || c == Short.class -> (short) random.nextInt();
+      case Class<?> c when c == char.class || c == Character.class -> (char) ('a' + random.nextInt(26));
+      case Class<?> c when c == int.class || c == Integer.class -> random.nextInt();
+      case Class<?> c when c == long.class || c == Long.class -> random.nextLong();
+      case Class<?> c when c == float.class || c == Float.class -> (float) random.nextDouble();
+      case Class<?> c when c == double.class || c == Double.class -> random.nextDouble();
+      case Class<?> c when c == String.class -> IntStream.range(0, random.nextInt(samples.maxSize() + 1))
+          .mapToObj(i -> String.valueOf((char) ('a' + random.nextInt(26))))
+          .collect(Collectors.joining());
+      case Class<?> c when c == java.util.UUID.class -> new java.util.UUID(random.nextLong(), random.nextLong());
+      case Class<?> c when c.isEnum() -> {
+        final Object[] constants = c.getEnumConstants();
+        yield constants.length == 0 ? null : constants[random.nextInt(constants.length)];
+      }
+      case Class<?> c when c == Optional.class && arguments.length == 1 -> random.nextBoolean() ? Optional.empty() :
+          Optional.ofNullable(sampleValue(samples, random, arguments[0], depth));
+      case Class<?> c when c == List.class && arguments.length == 1 -> {
+        final Object[] elements = new Object[random.nextInt(samples.maxSize() + 1)];
+        Arrays.setAll(elements, i -> sampleValue(samples, random, arguments[0], depth));
+        yield Collections.unmodifiableList(Arrays.asList(elements));
+      }
+      case Class<?> c when c == Map.class && arguments.length == 2 -> {
+        final Map<Object, Object> map = new LinkedHashMap<>();
+        IntStream.range(0, random.nextInt(samples.maxSize() + 1))
+            .forEach(i -> map.put(sampleValue(samples, random, arguments[0], depth),
+                sampleValue(samples, random, arguments[1], depth)));
+        yield Collections.unmodifiableMap(map);
+      }
+      case Class<?> c when c.isArray() -> sampleArray(samples, random, c.getComponentType(), depth);
+      case Class<?> c when c.isRecord() -> {
+        if (depth >= samples.maxDepth()) {
+          yield null;
+        }
+        final RecordComponent[] components = c.getRecordComponents();
+        final Object[] values = new Object[components.length];
+        Arrays.setAll(values, i -> sampleValue(samples, random, components[i].getGenericType(), depth + 1));
+        yield ((RecordPickler<?>) Pickler.forRecord(c.asSubclass(Record.class))).newInstance(values);
+      }
+      case Class<?> c when c.isSealed() -> {
+        final Class<?>[] permitted = SealedPickler.allPermittedRecordClasses(c).toArray(Class<?>[]::new);
+        yield sampleValue(samples, random, permitted[random.nextInt(permitted.length)], depth);
+      }
+      default -> {
+        final var msg = "Cannot generate a sample of unsupported type " + type.getTypeName();
+        LOGGER.severe(() -> msg);
+        throw new IllegalArgumentException(msg);
+      }
+    };
+  }
+
+  /// Generates an array of a random length up to the maximum size.
+  static Object sampleArray(Pickler.Samples samples, SplittableRandom random, java.lang.reflect.Type componentType,
+                            int depth) {
+    final Object array = Array.newInstance(rawType(componentType), random.nextInt(samples.maxSize() + 1));
+    IntStream.range(0, Array.getLength(array))
+        .forEach(i -> Array.set(array, i, sampleValue(samples, random, componentType, depth)));
+    return array;
+  }
+
+  static Class<?> rawType(java.lang.reflect.Type type) {
+    return switch (type) {
+      case Class<?> c -> c;
+      case ParameterizedType parameterized -> (Class<?>) parameterized.getRawType();
+      case GenericArrayType arrayType -> Array.newInstance(rawType(arrayType.getGenericComponentType()), 0).getClass();
+      case WildcardType wildcard -> rawType(wildcard.getUpperBounds()[0]);
+      case TypeVariable<?> variable -> rawType(variable.getBounds()[0]);
+      default -> throw new IllegalArgumentException("Unsupported type " + type.getTypeName());
+    };
+  }
+
+  /// Writes a short value (0-255) as a single unsigned byte to the buffer.
+  ///
+  /// @param buffer The buffer to write to.
+  /// @param value The short value (must be between 0 and 255).
+  /// @throws IllegalArgumentException if the value is outside the 0-255 range.
+  static void writeUnsignedByte(ByteBuffer buffer, short value) {
+    if (value < 0 || value > 255) {
+      throw new IllegalArgumentException("Value must be between 0 and 255, but got: " + value);
+    }
+    buffer.put((byte) value);
+  }
+
+  /// Reads a single byte from the buffer and returns it as a short, treating the byte as unsigned (0-255).
+  ///
+  /// @param buffer The buffer to read from.
+  /// @return The short value (0-255).
+  static short readUnsignedByte(ByteBuffer buffer) {
+    return (short) (buffer.get() & 0xFF);
+  }
+
+  static void write(Map<Class<?>, Integer> classToOffset, ByteBuffer buffer, Object c) {
+    if (c == null) {
+      buffer.put(NULL.marker());
+      return;
+    }
+
+    if (c.getClass().isArray()) {
       buffer.put(ARRAY.marker());
 
       writeDeduplicatedClassName(buffer, c.getClass().getComponentType(), classToOffset,
@@ -701,17 +1812,21 @@ class Companion {
           throw new IllegalArgumentException(msg, e);
         }
       }
-      case MAP -> // Handle maps
-          IntStream.range(0, buffer.getInt())
-              .mapToObj(i ->
-                  Map.entry(
-                      Objects.requireNonNull(deserializeValue(bufferOffset2Class, buffer)),
-                      Objects.requireNonNull(deserializeValue(bufferOffset2Class, buffer))))
-              .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
-      case LIST -> // Handle Lists
-          IntStream.range(0, buffer.getInt())
-              .mapToObj(i -> deserializeValue(bufferOffset2Class, buffer))
-              .toList();
+      case MAP -> { // Handle maps
+        // The wire format gives us the exact count so fill a presized array of entries that the immutable map
+        // is built from directly. Keys and values are read in order as argument evaluation is left to right.
+        final Map.Entry<?, ?>[] entries = new Map.Entry<?, ?>[buffer.getInt()];
+        Arrays.setAll(entries, ignored -> Map.entry(
+            Objects.requireNonNull(deserializeValue(bufferOffset2Class, buffer)),
+            Objects.requireNonNull(deserializeValue(bufferOffset2Class, buffer))));
+        yield Map.ofEntries(entries);
+      }
+      case LIST -> { // Handle Lists
+        // Lists may contain nulls so wrap the presized array rather than copying it into `List.of`
+        final Object[] elements = new Object[buffer.getInt()];
+        Arrays.setAll(elements, ignored -> deserializeValue(bufferOffset2Class, buffer));
+        yield Collections.unmodifiableList(Arrays.asList(elements));
+      }
       case ENUM -> { // Handle enums
         try {
           // Read the enum class with deduplication support
@@ -780,26 +1895,18 @@ class Companion {
       int currentPosition = buffer.position() - 4; // Position before reading the length
 
       if (buffer.remaining() < componentTypeLength) {
-        final var msg = "Buffer underflow: needed " + componentTypeLength +
-            " bytes but only " + buffer.remaining() + " remaining";
-        LOGGER.severe(() -> msg);
-        throw new IllegalArgumentException(msg);
+        // the rest of the message may not have arrived yet so this is not bad data as far as a reader can tell
+        LOGGER.fine(() -> "Buffer underflow: needed " + componentTypeLength +
+            " bytes but only " + buffer.remaining() + " remaining");
+        throw new BufferUnderflowException();
       }
 
       // Read the class name
       byte[] classNameBytes = new byte[componentTypeLength];
       buffer.get(classNameBytes);
-      String className = new String(classNameBytes, UTF_8);
-
-      // Validate class name - add basic validation that allows array type names like `[I`, `[[I`, `[L`java.lang.String;` etc.
-      if (!className.matches("[\\[\\]a-zA-Z0-9_.$;]+")) {
-        final var msg = "Invalid class name format: " + className;
-        LOGGER.severe(() -> msg);
-        throw new IllegalArgumentException(msg);
-      }
 
       // Load the class using our helper method
-      Class<?> loadedClass = getClassForName(className);
+      Class<?> loadedClass = classForWireName(new String(classNameBytes, UTF_8));
 
       // Store in our map for future references
       bufferOffset2Class.put(currentPosition, loadedClass);
@@ -808,6 +1915,20 @@ class Companion {
     }
   }
 
+  /// Validates a class name read from a buffer before loading it.
+  ///
+  /// @param className The class name as written by [#writeDeduplicatedClassName]
+  /// @return The loaded class
+  static Class<?> classForWireName(String className) throws ClassNotFoundException {
+    // Validate class name - add basic validation that allows array type names like `[I`, `[[I`, `[L`java.lang.String;` etc.
+    if (!className.matches("[\\[\\]a-zA-Z0-9_.$;]+")) {
+      final var msg = "Invalid class name format: " + className;
+      LOGGER.severe(() -> msg);
+      throw new IllegalArgumentException(msg);
+    }
+    return getClassForName(className);
+  }
+
   /// Helper method to get an enum constant with proper type witness
   ///
   /// @param enumClass The enum class
@@ -891,8 +2012,8 @@ class Companion {
       }
       // Get the appropriate pickler for this record type
       @SuppressWarnings("unchecked")
-      Pickler<Record> nestedPickler = (Pickler<Record>) Pickler.forRecord(record.getClass());
-      size += nestedPickler.sizeOf(record); // Size of the record itself
+      RecordPickler<Record> nestedPickler = (RecordPickler<Record>) Pickler.forRecord(record.getClass());
+      size += nestedPickler.sizeOf(record, null); // Size of the record itself without an event of its own
     } else if (c instanceof Map<?, ?> map) {
       // 4 bytes for the number of entries
       size += 4;
@@ -937,10 +2058,139 @@ class Companion {
     return size;
   }
 
+  /// Invokes the canonical constructor of a record that has no components once so that the instance can be
+  /// shared by every decode. If the constructor throws we log and return null so that decoding falls back to
+  /// invoking the constructor each time which surfaces the same error to the caller.
+  ///
+  /// @param recordClass The record class which must have no components
+  /// @param invokers The invokers holding the no-args canonical constructor
+  /// @return The canonical instance or null if it could not be created
+  @SuppressWarnings("unchecked")
+  static <R extends Record> R createCanonicalInstance(Class<R> recordClass, RecordPickler.Invokers invokers) {
+    try {
+      return (R) invokers.construct(invokers.canonical(), new Object[0]);
+    } catch (Throwable e) {
+      LOGGER.warning(() -> "Cannot cache canonical instance of " + recordClass.getName() + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /// The erased type that every component accessor is adapted to so it can be called with `invokeExact`.
+  static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Record.class);
+
+  /// The erased type that every constructor is adapted to so it can be called with `invokeExact`.
+  static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+  /// Adapts a direct accessor handle such as `(Person)String` to `(Record)Object` once when the pickler is created.
+  /// `invokeWithArguments` would perform the equivalent boxing and spreading adaptation on every call which the JIT
+  /// cannot see through. An exact invocation of a pre-adapted handle is a straight call that it can inline.
+  static MethodHandle accessorInvoker(MethodHandle accessor) {
+    return accessor.asType(ACCESSOR_TYPE);
+  }
+
+  /// Adapts a direct constructor handle such as `(String,int)Person` to `(Object[])Object` once when the pickler is
+  /// created. The spreader unboxes each component to the declared parameter type with the same conversions and
+  /// exceptions as `invokeWithArguments`.
+  static MethodHandle constructorInvoker(MethodHandle constructor) {
+    return constructor.asSpreader(Object[].class, constructor.type().parameterCount()).asType(CONSTRUCTOR_TYPE);
+  }
+
+  /// Handles that dispatch to the two methods of a [Pickler.Precompiled] that are bound to each instance.
+  static final MethodHandle PRECOMPILED_COMPONENT;
+  static final MethodHandle PRECOMPILED_NEW_INSTANCE;
+
+  static {
+    try {
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      PRECOMPILED_COMPONENT = lookup.findVirtual(Pickler.Precompiled.class, "component",
+          MethodType.methodType(Object.class, Record.class, int.class));
+      PRECOMPILED_NEW_INSTANCE = lookup.findVirtual(Pickler.Precompiled.class, "newInstance",
+          MethodType.methodType(Record.class, Object[].class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /// Build time generated accessors looked up once per record class. A [ClassValue] is unloaded along with the record
+  /// class and is not pinned to the class loader of the thread that first used the library.
+  static final ClassValue<Optional<Pickler.Precompiled<?>>> PRECOMPILED = new ClassValue<>() {
+    @Override
+    protected Optional<Pickler.Precompiled<?>> computeValue(Class<?> recordClass) {
+      return findPrecompiled(recordClass);
+    }
+  };
+
+  @SuppressWarnings("unchecked")
+  static final Class<Pickler.Precompiled<?>> PRECOMPILED_SERVICE =
+      (Class<Pickler.Precompiled<?>>) (Class<?>) Pickler.Precompiled.class;
+
+  /// Streams the providers visible to the loader of the record and instantiates the first one whose class declares
+  /// that it implements `Precompiled` of the record. A provider that fails to load is logged and skipped so that its
+  /// record falls back to the reflective path.
+  static Optional<Pickler.Precompiled<?>> findPrecompiled(Class<?> recordClass) {
+    try {
+      return ServiceLoader.load(PRECOMPILED_SERVICE, recordClass.getClassLoader()).stream()
+          .filter(provider -> provides(provider.type(), recordClass))
+          .<Pickler.Precompiled<?>>flatMap(provider -> {
+            try {
+              return Stream.of(provider.get());
+            } catch (ServiceConfigurationError e) {
+              LOGGER.warning(() -> "Ignoring precompiled pickler " + provider.type().getName() + ": " + e.getMessage());
+              return Stream.empty();
+            }
+          })
+          .filter(precompiled -> precompiled.recordClass() == recordClass)
+          .peek(precompiled -> LOGGER.fine(() -> "Found precompiled pickler for " + recordClass.getName()))
+          .findFirst();
+    } catch (ServiceConfigurationError e) {
+      LOGGER.warning(() -> "Ignoring precompiled picklers for " + recordClass.getName() + ": " + e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  static boolean provides(Class<?> providerType, Class<?> recordClass) {
+    return Arrays.stream(providerType.getGenericInterfaces())
+        .filter(ParameterizedType.class::isInstance)
+        .map(ParameterizedType.class::cast)
+        .anyMatch(type -> type.getRawType() == Pickler.Precompiled.class &&
+            type.getActualTypeArguments()[0] == recordClass);
+  }
+
+  /// Creates a record pickler from the build time generated accessors by binding them into the exact handle shapes
+  /// that the reflective path adapts to. The picklers share one implementation, so they are wire compatible.
+  static <R extends Record> Pickler<R> manufacturePrecompiledPickler(Class<R> recordClass, Pickler.Precompiled<?> precompiled) {
+    final int componentCount = precompiled.componentCount();
+    final MethodHandle[] componentAccessors = new MethodHandle[componentCount];
+    final MethodHandle component = PRECOMPILED_COMPONENT.bindTo(precompiled);
+    Arrays.setAll(componentAccessors, i -> MethodHandles.insertArguments(component, 1, i));
+    final MethodHandle constructor = PRECOMPILED_NEW_INSTANCE.bindTo(precompiled).asType(CONSTRUCTOR_TYPE);
+    final Map<Integer, MethodHandle> fallbackConstructorHandles = new HashMap<>();
+    Arrays.stream(precompiled.constructorArities())
+        .filter(arity -> arity != componentCount)
+        .forEach(arity -> fallbackConstructorHandles.put(arity, constructor));
+    return newRecordPickler(recordClass,
+        new RecordPickler.Invokers(componentAccessors, constructor, fallbackConstructorHandles, true), 0);
+  }
+
+  /// The system property that opts in to tiered record picklers. A tiered pickler calls the resolved accessor and
+  /// constructor handles with `invokeWithArguments` until it has performed about this many operations and then adapts
+  /// them for `invokeExact`. The default of `0` adapts the handles of every pickler as it is created.
+  static final String TIER_THRESHOLD_PROPERTY = "no.framework.Pickler.TierThreshold";
+
+  static final int TIER_THRESHOLD_DEFAULT = 0;
+
   static <R extends Record> Pickler<R> manufactureRecordPickler(Class<R> recordClass) {
+    return manufactureRecordPickler(recordClass, Integer.getInteger(TIER_THRESHOLD_PROPERTY, TIER_THRESHOLD_DEFAULT));
+  }
+
+  /// @param tierThreshold About how many operations to perform before adapting the handles where `0` adapts them now
+  static <R extends Record> Pickler<R> manufactureRecordPickler(Class<R> recordClass, int tierThreshold) {
+    final Optional<Pickler.Precompiled<?>> precompiled = PRECOMPILED.get(recordClass);
+    if (precompiled.isPresent()) {
+      return manufacturePrecompiledPickler(recordClass, precompiled.get());
+    }
     final Map<Integer, MethodHandle> fallbackConstructorHandles = new HashMap<>();
     final MethodHandle[] componentAccessors;
-    final int canonicalParamCount;
     final MethodHandles.Lookup lookup = MethodHandles.lookup();
     MethodHandle canonicalConstructorHandle;
     try {
@@ -971,17 +2221,13 @@ class Companion {
       throw new IllegalArgumentException(msg, inner);
     }
 
-    final int componentCount;
-
     // Get the canonical constructor and any fallback constructors for schema evolution
     try {
       final RecordComponent[] components = recordClass.getRecordComponents();
-      componentCount = components.length;
       // Extract component types for the canonical constructor
       final Class<?>[] canonicalParamTypes = Arrays.stream(components)
           .map(RecordComponent::getType)
           .toArray(Class<?>[]::new);
-      canonicalParamCount = canonicalParamTypes.length;
 
       // Get all public constructors
       final Constructor<?>[] allConstructors = recordClass.getConstructors();
@@ -1040,13 +2286,26 @@ class Companion {
       throw new IllegalArgumentException(msg, e);
     }
 
-    // Capture these values for use in the anonymous class
-    final MethodHandle finalCanonicalConstructorHandle = canonicalConstructorHandle;
+    final RecordPickler.Invokers resolved = new RecordPickler.Invokers(componentAccessors, canonicalConstructorHandle,
+        fallbackConstructorHandles, false);
+    return newRecordPickler(recordClass, tierThreshold > 0 ? resolved : resolved.adapt(), tierThreshold);
+  }
+
+  /// Creates the record pickler from the resolved handles.
+  ///
+  /// @param recordClass The record class
+  /// @param resolved The accessors, canonical constructor and fallback constructors for schema evolution
+  /// @param tierThreshold About how many operations to perform before adapting handles that are not yet exact
+  static <R extends Record> Pickler<R> newRecordPickler(Class<R> recordClass,
+                                                        RecordPickler.Invokers resolved,
+                                                        int tierThreshold) {
+    final int componentCount = resolved.accessors().length;
 
     final Pickler.Compatibility compatibility = Pickler.Compatibility.valueOf(
         System.getProperty(Pickler.Compatibility.COMPATIBILITY_SYSTEM_PROPERTY, "NONE"));
 
     final String recordClassName = recordClass.getName();
+    final PicklerMetrics metrics = METRICS.get(recordClass);
     if (compatibility != Pickler.Compatibility.NONE) {
       // We are secure by default this is opt-in and should not be left on forever so best to nag
       LOGGER.warning(() -> "Pickler for " + recordClassName + " has Compatibility set to " + compatibility.name());
@@ -1055,42 +2314,88 @@ class Companion {
     // we are security by default so if we are set to strict mode do not allow fallback constructors
     final Map<Integer, MethodHandle> finalFallbackConstructorHandles =
         (Pickler.Compatibility.BACKWARDS == compatibility || Pickler.Compatibility.ALL == compatibility) ?
-            Collections.unmodifiableMap(fallbackConstructorHandles) : Collections.emptyMap();
+            Collections.unmodifiableMap(resolved.fallbacks()) : Collections.emptyMap();
+
+    final RecordPickler.Invokers invokers = new RecordPickler.Invokers(resolved.accessors(), resolved.canonical(),
+        finalFallbackConstructorHandles, resolved.exact());
+    final InvokerTier tier = new InvokerTier(invokers, tierThreshold);
+
+    // A record without components has only one possible value so we decode to a cached canonical instance
+    // rather than invoking the constructor and allocating on every message. Command-style protocols such as
+    // `Pop()` and `Peek()` are dominated by these.
+    final R canonicalInstance = componentCount == 0 ? createCanonicalInstance(recordClass, invokers) : null;
 
     return new RecordPickler<>() {
 
+      @Override
+      Class<R> type() {
+        return recordClass;
+      }
+
+      @Override
+      boolean promoted() {
+        return tier.invokers.exact();
+      }
+
+      @Override
+      R newInstance(Object[] components) {
+        return staticCreateFromComponents(components);
+      }
+
       @Override
       public Compatibility compatibility() {
         return compatibility;
       }
 
+      /// @param classToOffset The class names written so far or null at the top level where it is created on demand
       @Override
       void serializeWithMap(R object, ByteBuffer buffer, Map<Class<?>, Integer> classToOffset) {
+        if (componentCount == 0) {
+          writeUnsignedByte(buffer, (short) 0);
+          return;
+        }
         final var components = components(object);
         // Write the number of components as an unsigned byte (max 255)
         writeUnsignedByte(buffer, (short) components.length);
-        Arrays.stream(components).forEach(c -> Companion.write(classToOffset, buffer, c));
+        final Map<Class<?>, Integer> classes = classToOffset != null ? classToOffset : new HashMap<>();
+        Arrays.stream(components).forEach(c -> Companion.write(classes, buffer, c));
       }
 
+      /// @param bufferOffset2Class The class names read so far or null at the top level where it is created on demand
       @Override
       R deserializeWithMap(ByteBuffer buffer, Map<Integer, Class<?>> bufferOffset2Class) {
         // Read the number of components as an unsigned byte
         final short length = readUnsignedByte(buffer);
         Compatibility.validate(compatibility, recordClassName, componentCount, length);
+        if (length == 0 && canonicalInstance != null) {
+          return canonicalInstance;
+        }
+        final Map<Integer, Class<?>> classes = bufferOffset2Class != null ? bufferOffset2Class : new HashMap<>();
         // This may unload from the stream things that we will ignore
         final Object[] components = new Object[length];
-        Arrays.setAll(components, ignored -> deserializeValue(bufferOffset2Class, buffer));
-        if (componentCount < length && (Compatibility.FORWARDS == compatibility || Compatibility.ALL == compatibility)) {
+        Arrays.setAll(components, ignored -> deserializeValue(classes, buffer));
+        return create(components);
+      }
+
+      @Override
+      R fromComponents(Object[] components) {
+        Compatibility.validate(compatibility, recordClassName, componentCount, components.length);
+        return create(components);
+      }
+
+      private R create(Object[] components) {
+        if (componentCount < components.length && (Compatibility.FORWARDS == compatibility || Compatibility.ALL == compatibility)) {
           return this.staticCreateFromComponents(Arrays.copyOfRange(components, 0, componentCount));
         }
         return this.staticCreateFromComponents(components);
       }
 
       private Object[] components(R record) {
-        Object[] result = new Object[componentAccessors.length];
+        final Invokers current = tier.invokers();
+        Object[] result = new Object[componentCount];
         Arrays.setAll(result, i -> {
           try {
-            return componentAccessors[i].invokeWithArguments(record);
+            return current.component(record, i);
           } catch (Throwable e) {
             final var msg = "Failed to access component: " + i +
                 " in record class '" + recordClassName + "' : " + e.getMessage();
@@ -1108,12 +2413,16 @@ class Companion {
           int numComponents = components.length;
           MethodHandle constructorToUse;
 
-          if (numComponents == canonicalParamCount) {
+          if (numComponents == 0 && canonicalInstance != null) {
+            return canonicalInstance;
+          }
+          final Invokers current = tier.invokers();
+          if (numComponents == componentCount) {
             // Number of components matches the canonical constructor - use it directly
-            constructorToUse = finalCanonicalConstructorHandle;
+            constructorToUse = current.canonical();
           } else {
             // Number of components differs, look for a fallback constructor
-            constructorToUse = finalFallbackConstructorHandles.get(numComponents);
+            constructorToUse = current.fallbacks().get(numComponents);
             if (constructorToUse == null) {
               final var msg = "Schema evolution error: Cannot deserialize data for " +
                   recordClassName + ". Found " + numComponents +
@@ -1122,10 +2431,11 @@ class Companion {
               // No fallback constructor matches the number of components found
               throw new IllegalArgumentException(msg);
             }
+            metrics.fallback();
           }
 
           // Invoke the selected constructor
-          return (R) constructorToUse.invokeWithArguments(components);
+          return (R) current.construct(constructorToUse, components);
         } catch (Throwable e) {
           final var msg = "Failed to create instance of " + recordClassName +
               " with " + components.length + " components: " + e.getMessage();
@@ -1135,17 +2445,66 @@ class Companion {
       }
 
       @Override
-      public void serialize(R object, ByteBuffer buffer) {
-        serializeWithMap(object, buffer, new HashMap<>());
+      void serialize(R object, ByteBuffer buffer, PicklerEvent event) {
+        final CaptureRing capture = CAPTURE;
+        final long begin = capture != null ? System.nanoTime() : 0L;
+        final int start = buffer.position();
+        final Listener listener = listener();
+        if (listener != null) {
+          listener.begin(Listener.Operation.SERIALIZE, recordClass, start);
+        }
+        try {
+          serializeWithMap(object, buffer, null);
+        } finally {
+          if (listener != null) {
+            listener.end(Listener.Operation.SERIALIZE, recordClass, buffer.position(), buffer.position() - start);
+          }
+        }
+        final int bytes = buffer.position() - start;
+        metrics.serialized(bytes);
+        if (capture != null) {
+          capture.offer(Listener.Operation.SERIALIZE, recordClass, buffer, start, bytes, System.nanoTime() - begin);
+        }
+        if (event != null) {
+          event.emit(recordClassName, bytes, compatibility);
+        }
       }
 
       @Override
-      public R deserialize(ByteBuffer buffer) {
-        return deserializeWithMap(buffer, new HashMap<>());
+      R deserialize(ByteBuffer buffer, PicklerEvent event) {
+        final boolean timed = metrics.sampleDecode();
+        final CaptureRing capture = CAPTURE;
+        final long begin = timed || capture != null ? System.nanoTime() : 0L;
+        final int start = buffer.position();
+        final Listener listener = listener();
+        if (listener != null) {
+          listener.begin(Listener.Operation.DESERIALIZE, recordClass, start);
+        }
+        final R result;
+        try {
+          result = deserializeWithMap(buffer, null);
+        } finally {
+          if (listener != null) {
+            listener.end(Listener.Operation.DESERIALIZE, recordClass, buffer.position(), buffer.position() - start);
+          }
+        }
+        final long end = timed || capture != null ? System.nanoTime() : 0L;
+        if (timed) {
+          metrics.decodeNanos(end - begin);
+        }
+        final int bytes = buffer.position() - start;
+        metrics.deserialized(bytes);
+        if (capture != null) {
+          capture.offer(Listener.Operation.DESERIALIZE, recordClass, buffer, start, bytes, end - begin);
+        }
+        if (event != null) {
+          event.emit(recordClassName, bytes, compatibility);
+        }
+        return result;
       }
 
       @Override
-      public int sizeOf(R object) {
+      int sizeOf(R object, PicklerEvent event) {
         final var components = components(object);
         int size = 1; // Start with 1 byte for the type of the component
         for (Object c : components) {
@@ -1155,8 +2514,1278 @@ class Companion {
               Optional.ofNullable(c).map(c2 -> c2.getClass().getSimpleName()).orElse("null")
               + " '" + c + "' is " + finalSize);
         }
+        if (event != null) {
+          event.emit(recordClassName, size, compatibility);
+        }
         return size;
       }
     };
   }
 }
+
+/// Flight Recorder events for the pickler operations and for building a pickler. They are enabled in any recording
+/// but only written when the operation is slower than the threshold, which a recording can lower with a setting such
+/// as `io.github.simbo1905.no.framework.Serialize#threshold=0 ms`. An event is only allocated when a recording has
+/// enabled its type, and only the outermost operation records one so a message is one event however deeply it nests.
+@Category({"No Framework Pickler"})
+@StackTrace(false)
+abstract class PicklerEvent extends Event {
+  @Label("Type")
+  @Description("The record or sealed interface that the pickler handles")
+  String type;
+
+  @Label("Bytes")
+  @Description("The bytes read or written, or the computed size")
+  @DataAmount
+  long bytes;
+
+  @Label("Compatibility")
+  String compatibility;
+
+  /// Events that are only asked whether their type is enabled in a running recording.
+  static final PicklerEvent SERIALIZE = new Serialize();
+  static final PicklerEvent DESERIALIZE = new Deserialize();
+  static final PicklerEvent SIZE_OF = new SizeOf();
+  static final PicklerEvent CREATE = new Create();
+
+  /// @return A begun event or null when no recording has enabled serialize events
+  static PicklerEvent serialize() {
+    return SERIALIZE.isEnabled() ? new Serialize().begun() : null;
+  }
+
+  /// @return A begun event or null when no recording has enabled deserialize events
+  static PicklerEvent deserialize() {
+    return DESERIALIZE.isEnabled() ? new Deserialize().begun() : null;
+  }
+
+  /// @return A begun event or null when no recording has enabled size of events
+  static PicklerEvent sizeOf() {
+    return SIZE_OF.isEnabled() ? new SizeOf().begun() : null;
+  }
+
+  /// @return A begun event or null when no recording has enabled create events
+  static PicklerEvent create() {
+    return CREATE.isEnabled() ? new Create().begun() : null;
+  }
+
+  final PicklerEvent begun() {
+    begin();
+    return this;
+  }
+
+  /// Commits the event when the operation took longer than the threshold.
+  final void emit(String type, long bytes, Pickler.Compatibility compatibility) {
+    end();
+    if (shouldCommit()) {
+      this.type = type;
+      this.bytes = bytes;
+      this.compatibility = compatibility.name();
+      commit();
+    }
+  }
+
+  @Name("io.github.simbo1905.no.framework.Serialize")
+  @Label("Pickler Serialize")
+  @Threshold("20 ms")
+  static final class Serialize extends PicklerEvent {
+  }
+
+  @Name("io.github.simbo1905.no.framework.Deserialize")
+  @Label("Pickler Deserialize")
+  @Threshold("20 ms")
+  static final class Deserialize extends PicklerEvent {
+  }
+
+  @Name("io.github.simbo1905.no.framework.SizeOf")
+  @Label("Pickler Size Of")
+  @Threshold("20 ms")
+  static final class SizeOf extends PicklerEvent {
+  }
+
+  /// Building a pickler happens once per class so it is recorded whatever it costs. It has no bytes.
+  @Name("io.github.simbo1905.no.framework.Create")
+  @Label("Pickler Create")
+  @Description("Building the pickler for a record or sealed interface")
+  static final class Create extends PicklerEvent {
+  }
+}
+
+/// The counters behind [Pickler.MetricsMXBean]. The adders spread updates from concurrent threads over cells so that
+/// counting does not contend on a shared cache line. When the counters are turned off every update is a test of a
+/// static final flag that the JIT removes.
+final class PicklerMetrics implements Pickler.MetricsMXBean {
+
+  /// Set to `false` to neither count nor publish over JMX.
+  static final String JMX_PROPERTY = "no.framework.Pickler.Jmx";
+
+  static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(JMX_PROPERTY, "true"));
+
+  static final String DOMAIN = "io.github.simbo1905.no.framework";
+
+  /// One in this many decodes reads the clock.
+  static final int DECODE_SAMPLE_RATE = 64;
+
+  final String type;
+  final LongAdder messagesSerialized = new LongAdder();
+  final LongAdder bytesSerialized = new LongAdder();
+  final LongAdder messagesDeserialized = new LongAdder();
+  final LongAdder bytesDeserialized = new LongAdder();
+  final LongAccumulator maxMessageSize = new LongAccumulator(Math::max, 0);
+  final LongAdder decodesTimed = new LongAdder();
+  final LongAdder decodeNanos = new LongAdder();
+  final LongAdder fallbackConstructorHits = new LongAdder();
+  /// Completes once the counters are on the MBean server, or straight away when they are not published.
+  volatile CompletableFuture<Void> published = CompletableFuture.completedFuture(null);
+
+  PicklerMetrics(String type) {
+    this.type = type;
+  }
+
+  void serialized(int bytes) {
+    if (ENABLED) {
+      messagesSerialized.increment();
+      bytesSerialized.add(bytes);
+      maxMessageSize.accumulate(bytes);
+    }
+  }
+
+  void deserialized(int bytes) {
+    if (ENABLED) {
+      messagesDeserialized.increment();
+      bytesDeserialized.add(bytes);
+      maxMessageSize.accumulate(bytes);
+    }
+  }
+
+  boolean sampleDecode() {
+    return ENABLED && ThreadLocalRandom.current().nextInt(DECODE_SAMPLE_RATE) == 0;
+  }
+
+  void decodeNanos(long nanos) {
+    decodesTimed.increment();
+    decodeNanos.add(nanos);
+  }
+
+  void fallback() {
+    if (ENABLED) {
+      fallbackConstructorHits.increment();
+    }
+  }
+
+  /// Registers with the MBean server on the common pool as finding the platform server the first time starts the
+  /// JMX agent, which would otherwise delay the thread that creates the first pickler.
+  void publish() {
+    if (ENABLED) {
+      published = CompletableFuture.runAsync(() -> register(this));
+    }
+  }
+
+  @Override
+  public String getType() {
+    return type;
+  }
+
+  @Override
+  public long getMessagesSerialized() {
+    return messagesSerialized.sum();
+  }
+
+  @Override
+  public long getBytesSerialized() {
+    return bytesSerialized.sum();
+  }
+
+  @Override
+  public long getMessagesDeserialized() {
+    return messagesDeserialized.sum();
+  }
+
+  @Override
+  public long getBytesDeserialized() {
+    return bytesDeserialized.sum();
+  }
+
+  @Override
+  public long getMaxMessageSize() {
+    return maxMessageSize.get();
+  }
+
+  @Override
+  public double getAverageDecodeNanos() {
+    final long timed = decodesTimed.sum();
+    return timed == 0 ? 0.0 : (double) decodeNanos.sum() / timed;
+  }
+
+  @Override
+  public long getFallbackConstructorHits() {
+    return fallbackConstructorHits.sum();
+  }
+
+  @Override
+  public void reset() {
+    Stream.of(messagesSerialized, bytesSerialized, messagesDeserialized, bytesDeserialized, decodesTimed, decodeNanos,
+        fallbackConstructorHits).forEach(LongAdder::reset);
+    maxMessageSize.reset();
+  }
+
+  static ObjectName objectName(String type) throws JMException {
+    return new ObjectName(DOMAIN + ":type=Pickler,name=" + type);
+  }
+
+  /// Publishes the counters on the platform MBean server. A class with the same name from a redeployed class loader
+  /// replaces the counters of the old one. Monitoring is not worth failing a pickler for so problems are logged.
+  static void register(PicklerMetrics metrics) {
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = objectName(metrics.type);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(metrics, name);
+    } catch (JMException | RuntimeException e) {
+      LOGGER.warning(() -> "Cannot publish pickler metrics for " + metrics.type + ": " + e.getMessage());
+    }
+  }
+}
+
+/// Reads pickled messages for [Pickler.Anatomy] without creating the records. Each read adds a [Span] for every run
+/// of bytes and the spans are summed by field and part.
+final class PayloadAnatomy {
+
+  /// A run of bytes of one part of the encoding of a field.
+  record Span(String field, Pickler.Anatomy.Part part, int bytes) {
+  }
+
+  static Pickler.Anatomy of(Class<?> type, Collection<ByteBuffer> buffers) {
+    if (!type.isRecord() && !type.isSealed()) {
+      final var msg = "Messages are records or sealed interfaces but got " + type.getName();
+      LOGGER.severe(() -> msg);
+      throw new IllegalArgumentException(msg);
+    }
+    final Map<String, Class<?>> permitted = type.isSealed() ? SealedPickler.shortNames(type).entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey)) : Map.of();
+    final Stream.Builder<Span> spans = Stream.builder();
+    buffers.forEach(buffer -> message(buffer, type, permitted, spans));
+    return new Pickler.Anatomy(buffers.size(), spans.build().collect(Collectors.groupingBy(Span::field,
+        Collectors.groupingBy(Span::part, Collectors.summingLong(Span::bytes)))));
+  }
+
+  static void message(ByteBuffer buffer, Class<?> type, Map<String, Class<?>> permitted, Stream.Builder<Span> spans) {
+    if (type.isRecord()) {
+      record(buffer, type, new HashMap<>(), spans);
+    } else if (buffer.get(buffer.position()) == NULL.marker()) {
+      skip(buffer, new Span(type.getSimpleName(), MARKER, 1), spans);
+    } else {
+      final int start = buffer.position();
+      final byte[] name = new byte[buffer.getInt()];
+      buffer.get(name);
+      spans.add(new Span(type.getSimpleName(), CLASS_NAME, buffer.position() - start));
+      final Class<?> recordClass = Optional.ofNullable(permitted.get(new String(name, UTF_8))).orElseThrow(() -> {
+        final var msg = "Unknown subtype: " + new String(name, UTF_8);
+        LOGGER.severe(() -> msg);
+        return new IllegalArgumentException(msg);
+      });
+      record(buffer, recordClass, new HashMap<>(), spans);
+    }
+  }
+
+  static void skip(ByteBuffer buffer, Span span, Stream.Builder<Span> spans) {
+    buffer.position(buffer.position() + span.bytes());
+    spans.add(span);
+  }
+
+  static void record(ByteBuffer buffer, Class<?> recordClass, Map<Integer, Class<?>> classes, Stream.Builder<Span> spans) {
+    final String name = recordClass.getSimpleName();
+    final RecordComponent[] components = recordClass.getRecordComponents();
+    final int count = Companion.readUnsignedByte(buffer);
+    spans.add(new Span(name, LENGTH, 1));
+    // data written by a newer version of the record may have more components than we know about
+    IntStream.range(0, count).forEach(i -> value(buffer,
+        name + "." + (i < components.length ? components[i].getName() : "#" + i), classes, spans));
+  }
+
+  static Class<?> className(ByteBuffer buffer, String field, Map<Integer, Class<?>> classes, Stream.Builder<Span> spans) {
+    final int start = buffer.position();
+    final boolean reference = buffer.getInt(start) < 0;
+    try {
+      final Class<?> resolved = Companion.resolveClass(buffer, classes);
+      spans.add(new Span(field, reference ? CLASS_REFERENCE : CLASS_NAME, buffer.position() - start));
+      return resolved;
+    } catch (ClassNotFoundException e) {
+      final var msg = "Failed to load class: " + e.getMessage();
+      LOGGER.severe(() -> msg);
+      throw new IllegalArgumentException(msg, e);
+    }
+  }
+
+  static void value(ByteBuffer buffer, String field, Map<Integer, Class<?>> classes, Stream.Builder<Span> spans) {
+    final Constants marker = Constants.fromMarker(buffer.get());
+    spans.add(new Span(field, MARKER, 1));
+    switch (marker) {
+      case NULL -> {
+      }
+      case BOOLEAN, BYTE, SHORT, CHARACTER, INTEGER, LONG, FLOAT, DOUBLE, UUID ->
+          skip(buffer, new Span(field, VALUE, marker.getSizeInBytes()), spans);
+      case STRING -> {
+        spans.add(new Span(field, LENGTH, Short.BYTES));
+        skip(buffer, new Span(field, VALUE, buffer.getShort()), spans);
+      }
+      case OPTIONAL -> {
+        spans.add(new Span(field, MARKER, 1));
+        if (buffer.get() != 0) {
+          value(buffer, field, classes, spans);
+        }
+      }
+      case RECORD -> record(buffer, className(buffer, field, classes, spans), classes, spans);
+      case ARRAY -> {
+        final Class<?> componentType = className(buffer, field, classes, spans);
+        final int length = buffer.getInt();
+        spans.add(new Span(field, LENGTH, Integer.BYTES));
+        if (byte.class.equals(componentType)) {
+          skip(buffer, new Span(field, VALUE, length), spans);
+        } else {
+          IntStream.range(0, length).forEach(i -> value(buffer, field, classes, spans));
+        }
+      }
+      case MAP -> {
+        final int size = buffer.getInt();
+        spans.add(new Span(field, LENGTH, Integer.BYTES));
+        IntStream.range(0, 2 * size).forEach(i -> value(buffer, field, classes, spans));
+      }
+      case LIST -> {
+        final int size = buffer.getInt();
+        spans.add(new Span(field, LENGTH, Integer.BYTES));
+        IntStream.range(0, size).forEach(i -> value(buffer, field, classes, spans));
+      }
+      case ENUM -> {
+        className(buffer, field, classes, spans);
+        final int length = buffer.getInt();
+        spans.add(new Span(field, LENGTH, Integer.BYTES));
+        skip(buffer, new Span(field, VALUE, length), spans);
+      }
+    }
+  }
+
+  static String table(Pickler.Anatomy anatomy) {
+    final var parts = Pickler.Anatomy.Part.values();
+    final int width = Stream.concat(Stream.of("Field", "Total"), anatomy.fields().keySet().stream())
+        .mapToInt(String::length).max().orElse(5);
+    final String format = "%-" + width + "s" + " %15s".repeat(parts.length) + " %12s %10s %6s%n";
+    final long total = anatomy.bytes();
+    final Stream<String> header = Stream.of(Stream.of("Field"), Arrays.stream(parts).map(Enum::name),
+        Stream.of("TOTAL", "PER_MSG", "%")).flatMap(s -> s);
+    final Stream<String> rows = anatomy.fields().entrySet().stream()
+        .sorted(Comparator.comparingLong((Map.Entry<String, Map<Pickler.Anatomy.Part, Long>> e) ->
+            e.getValue().values().stream().mapToLong(Long::longValue).sum()).reversed())
+        .map(e -> row(format, e.getKey(), Arrays.stream(parts)
+            .mapToLong(part -> e.getValue().getOrDefault(part, 0L)).toArray(), anatomy.messages(), total));
+    final String footer = row(format, "Total", Arrays.stream(parts).mapToLong(anatomy::bytes).toArray(),
+        anatomy.messages(), total);
+    return format.formatted(header.toArray()) + rows.collect(Collectors.joining()) + footer;
+  }
+
+  static String row(String format, String field, long[] parts, long messages, long total) {
+    final long sum = Arrays.stream(parts).sum();
+    return format.formatted(Stream.of(Stream.of(field), Arrays.stream(parts).boxed(), Stream.of(sum,
+        "%.1f".formatted(messages == 0 ? 0.0 : (double) sum / messages),
+        "%.1f".formatted(total == 0 ? 0.0 : 100.0 * sum / total))).flatMap(s -> s).toArray());
+  }
+}
+
+/// The bounded ring of a [Pickler.Capture]. It implements the MXBean interface directly so that JMX finds it.
+final class CaptureRing implements Pickler.Capture, Pickler.CaptureMXBean {
+
+  final long slowerThanNanos;
+  final int largerThan;
+  final AtomicReferenceArray<Message> ring;
+  final AtomicLong offered = new AtomicLong();
+
+  /// @param slowerThan Capture operations that take at least this long
+  /// @param largerThan Capture messages of at least this many bytes
+  /// @param capacity How many messages to keep
+  CaptureRing(Duration slowerThan, int largerThan, int capacity) {
+    if (slowerThan.isNegative() || largerThan < 0 || capacity <= 0) {
+      final var msg = "Capture thresholds must not be negative and the capacity must be positive but got " +
+          slowerThan + ", " + largerThan + " and " + capacity;
+      LOGGER.severe(() -> msg);
+      throw new IllegalArgumentException(msg);
+    }
+    this.slowerThanNanos = slowerThan.toNanos();
+    this.largerThan = largerThan;
+    this.ring = new AtomicReferenceArray<>(capacity);
+  }
+
+  /// Copies the message out of the buffer when it crosses either threshold.
+  void offer(Pickler.Listener.Operation operation, Class<?> type, ByteBuffer buffer, int start, int bytes, long nanos) {
+    if (nanos < slowerThanNanos && bytes < largerThan) {
+      return;
+    }
+    final byte[] copy = new byte[bytes];
+    buffer.get(start, copy);
+    final Message message = new Message(System.currentTimeMillis(), operation, type.getName(), nanos, start, copy);
+    ring.set((int) (offered.getAndIncrement() % ring.length()), message);
+  }
+
+  @Override
+  public List<Message> messages() {
+    final long end = offered.get();
+    return LongStream.range(Math.max(0, end - ring.length()), end)
+        .mapToObj(i -> ring.get((int) (i % ring.length())))
+        .filter(Objects::nonNull)
+        .toList();
+  }
+
+  @Override
+  public void dump(Path file) throws IOException {
+    final List<Message> messages = messages();
+    try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(messages.size());
+      for (Message message : messages) {
+        out.writeLong(message.epochMillis());
+        out.writeByte(message.operation().ordinal());
+        out.writeUTF(message.type());
+        out.writeLong(message.nanos());
+        out.writeInt(message.offset());
+        out.writeInt(message.bytes().length);
+        out.write(message.bytes());
+      }
+    }
+  }
+
+  static List<Message> read(Path file) throws IOException {
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      final Message[] messages = new Message[in.readInt()];
+      for (int i = 0; i < messages.length; i++) {
+        final long epochMillis = in.readLong();
+        final Pickler.Listener.Operation operation = Pickler.Listener.Operation.values()[in.readByte()];
+        final String type = in.readUTF();
+        final long nanos = in.readLong();
+        final int offset = in.readInt();
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        messages[i] = new Message(epochMillis, operation, type, nanos, offset, bytes);
+      }
+      return List.of(messages);
+    }
+  }
+
+  @Override
+  public void dump(String file) throws IOException {
+    dump(Path.of(file));
+  }
+
+  @Override
+  public long getSlowerThanNanos() {
+    return slowerThanNanos;
+  }
+
+  @Override
+  public int getLargerThan() {
+    return largerThan;
+  }
+
+  @Override
+  public int getCapacity() {
+    return ring.length();
+  }
+
+  @Override
+  public long getCaptured() {
+    return offered.get();
+  }
+}
+
+/// Writes the messages of a [Pickler.MessageWriter] to a channel through a chunk of a fixed size.
+/// @param <T> The type of the messages
+final class ChannelMessageWriter<T> implements Pickler.MessageWriter<T> {
+  final Pickler<T> pickler;
+  final WritableByteChannel channel;
+  final Flushable target;
+  final ByteBuffer chunk;
+
+  /// @param pickler The pickler of the messages
+  /// @param channel Where to write the messages
+  /// @param chunkSize The size of the buffer that holds messages until they are written
+  ChannelMessageWriter(Pickler<T> pickler, WritableByteChannel channel, int chunkSize) {
+    this(pickler, channel, null, chunkSize);
+  }
+
+  ChannelMessageWriter(Pickler<T> pickler, WritableByteChannel channel, Flushable target, int chunkSize) {
+    this.pickler = Objects.requireNonNull(pickler, "pickler");
+    this.channel = Objects.requireNonNull(channel, "channel");
+    this.target = target;
+    this.chunk = ByteBuffer.allocate(chunkSize);
+  }
+
+  /// Sizes the message first so that it is serialized once. `sizeOf` may be more than the bytes written so a message
+  /// that would fit may still start a new chunk. Each message is written as if it were at the start of a buffer so
+  /// that the reader can decode it wherever it lands in its own buffer. A message is only rejected when it overflows
+  /// an empty chunk so that memory stays bounded by the chunk size.
+  @Override
+  public void write(T message) throws IOException {
+    Objects.requireNonNull(message, "message");
+    final int size = pickler.sizeOf(message);
+    if (size > chunk.remaining()) {
+      flush();
+    }
+    final ByteBuffer slice = chunk.slice();
+    try {
+      pickler.serialize(message, slice);
+    } catch (BufferOverflowException e) {
+      final var msg = "Message of up to " + size + " bytes is larger than the " + chunk.capacity() +
+          " byte buffer of the writer";
+      LOGGER.severe(() -> msg);
+      throw new IllegalArgumentException(msg, e);
+    }
+    chunk.position(chunk.position() + slice.position());
+  }
+
+  void drain(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /// Writes out the buffered messages.
+  @Override
+  public void flush() throws IOException {
+    drain(chunk.flip());
+    chunk.clear();
+    if (target != null) {
+      target.flush();
+    }
+  }
+
+  /// Writes out the buffered messages and closes the channel.
+  @Override
+  public void close() throws IOException {
+    try (channel) {
+      flush();
+    }
+  }
+}
+
+/// Reads the messages of a [Pickler.MessageReader] from a channel through a buffer of a fixed size. The bytes are fed to
+/// an [IncrementalDecoder] as they arrive so that a message that spans several reads is decoded once.
+/// @param <T> The type of the messages
+final class ChannelMessageReader<T> implements Pickler.MessageReader<T> {
+  final IncrementalDecoder<T> decoder;
+  final ReadableByteChannel channel;
+  final ByteBuffer buffer;
+
+  /// @param pickler The pickler of the messages
+  /// @param channel Where to read the messages from
+  /// @param chunkSize The size of the buffer
+  ChannelMessageReader(Pickler<T> pickler, ReadableByteChannel channel, int chunkSize) {
+    this.decoder = new IncrementalDecoder<>(type(Objects.requireNonNull(pickler, "pickler")));
+    this.channel = Objects.requireNonNull(channel, "channel");
+    this.buffer = ByteBuffer.allocate(chunkSize).flip();
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> Class<T> type(Pickler<T> pickler) {
+    return (Class<T>) switch (pickler) {
+      case RecordPickler<?> recordPickler -> recordPickler.type();
+      case SealedPickler<?> sealedPickler -> sealedPickler.type();
+      default -> {
+        final var msg = "Cannot stream the messages of " + pickler.getClass().getName();
+        LOGGER.severe(() -> msg);
+        throw new IllegalArgumentException(msg);
+      }
+    };
+  }
+
+  @Override
+  public Optional<T> read() throws IOException {
+    while (true) {
+      if (buffer.hasRemaining()) {
+        final Optional<T> message = decoder.decode(buffer);
+        if (message.isPresent()) {
+          return message;
+        }
+      }
+      buffer.clear();
+      final int read = channel.read(buffer);
+      buffer.flip();
+      if (read < 0) {
+        if (decoder.partial()) {
+          throw new EOFException("The stream ended part way through a message after " + decoder.consumed + " bytes");
+        }
+        return Optional.empty();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
+
+/// The frames of a [Pickler.Framing] with the record picklers of its tags.
+/// @param <T> The record type or sealed interface of the messages
+final class FrameCodec<T> implements Pickler.Framing<T> {
+  final Class<?>[] records;
+  final Map<Class<?>, Integer> tags;
+  final Pickler<?>[] picklers;
+  final boolean correlated;
+
+  /// The size of the length prefix of the previous frame, which is the guess for the next one as a stream tends to
+  /// carry messages of similar sizes. The payload is written after a gap of this size and only moved when the length
+  /// of a frame turns out to need a different size. Threads that share the codec may see a stale guess which only
+  /// costs a move.
+  int lengthSize = 1;
+
+  FrameCodec(Class<T> type, boolean correlated) {
+    this.records = records(type);
+    this.correlated = correlated;
+    this.tags = IntStream.range(0, records.length).boxed().collect(Collectors.toMap(i -> records[i], i -> i));
+    this.picklers = Arrays.stream(records)
+        .map(record -> Pickler.forRecord(record.asSubclass(Record.class)))
+        .toArray(Pickler<?>[]::new);
+  }
+
+  static Class<?>[] records(Class<?> type) {
+    if (type.isRecord()) {
+      return new Class<?>[]{type};
+    } else if (type.isSealed()) {
+      return SealedPickler.allPermittedRecordClasses(type).toArray(Class<?>[]::new);
+    }
+    final var msg = "Messages are records or sealed interfaces but got " + type.getName();
+    LOGGER.severe(() -> msg);
+    throw new IllegalArgumentException(msg);
+  }
+
+  @SuppressWarnings("unchecked")
+  Pickler<Object> pickler(int tag) {
+    return (Pickler<Object>) picklers[tag];
+  }
+
+  @Override
+  public void encode(T message, ByteBuffer buffer) {
+    frame(0, message, buffer);
+  }
+
+  @Override
+  public void encode(int correlationId, T message, ByteBuffer buffer) {
+    if (!correlated || correlationId < 0) {
+      final var msg = correlated ? "Correlation ids are not negative but got " + correlationId :
+          "Frames only carry correlation ids when the framing is created with Framing.correlated";
+      LOGGER.severe(() -> msg);
+      throw new IllegalArgumentException(msg);
+    }
+    frame(correlationId, message, buffer);
+  }
+
+  void frame(int correlationId, T message, ByteBuffer buffer) {
+    final Integer tag = tags.get(message.getClass());
+    if (tag == null) {
+      throw new IllegalArgumentException("Cannot frame " + message.getClass().getName());
+    }
+    final int start = buffer.position();
+    final int tagSize = (correlated ? Companion.varintSize(correlationId) : 0) + Companion.varintSize(tag);
+    final int guess = lengthSize;
+    final int payloadStart = start + guess + tagSize;
+    try {
+      if (payloadStart > buffer.limit()) {
+        throw new BufferOverflowException();
+      }
+      // the message is written as if it were at the start of a buffer so that the decoder can read it from wherever
+      // the frame lands and so that it can be moved without rewriting any class references
+      final ByteBuffer slice = buffer.slice(payloadStart, buffer.limit() - payloadStart);
+      pickler(tag).serialize(message, slice);
+      final int payload = slice.position();
+      final int length = tagSize + payload;
+      final int size = Companion.varintSize(length);
+      if (size != guess) {
+        if (start + size + length > buffer.limit()) {
+          throw new BufferOverflowException();
+        }
+        buffer.put(start + size + tagSize, buffer, payloadStart, payload);
+        lengthSize = size;
+      }
+      buffer.position(start);
+      Companion.writeVarint(buffer, length);
+      if (correlated) {
+        Companion.writeVarint(buffer, correlationId);
+      }
+      Companion.writeVarint(buffer, tag);
+      buffer.position(start + size + length);
+    } catch (BufferOverflowException e) {
+      buffer.position(start);
+      throw e;
+    }
+  }
+
+  @Override
+  public int encode(List<? extends T> messages, ByteBuffer buffer) {
+    return (int) messages.stream().takeWhile(message -> encoded(message, buffer)).count();
+  }
+
+  /// @return Whether the message fit in the buffer, which is left as it was when it did not
+  boolean encoded(T message, ByteBuffer buffer) {
+    try {
+      encode(message, buffer);
+      return true;
+    } catch (BufferOverflowException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public Decoder decoder(int initialSize, int maxFrameSize) {
+    return new Decoder(initialSize, maxFrameSize);
+  }
+
+  /// Decodes the frames of this codec from a buffer that grows to the largest frame.
+  final class Decoder implements Pickler.Framing.Decoder<T> {
+    final int maxFrameSize;
+    ByteBuffer buffer;
+    /// The size of the frame at the front of the buffer once its length has arrived.
+    int pending;
+    int correlationId;
+
+    Decoder(int initialSize, int maxFrameSize) {
+      this.maxFrameSize = maxFrameSize;
+      this.buffer = ByteBuffer.allocate(initialSize).flip();
+    }
+
+    @Override
+    public int read(ReadableByteChannel channel) throws IOException {
+      room(1);
+      final int read = channel.read(buffer);
+      buffer.flip();
+      return read;
+    }
+
+    @Override
+    public void feed(ByteBuffer bytes) {
+      room(bytes.remaining());
+      buffer.put(bytes);
+      buffer.flip();
+    }
+
+    /// Compacts the buffer for writing and grows it if there is less than the room or the pending frame needs more.
+    void room(int room) {
+      buffer.compact();
+      final int needed = Math.max(buffer.position() + room, pending);
+      if (needed > buffer.capacity()) {
+        buffer = ByteBuffer.allocate(Math.max(needed, 2 * buffer.capacity())).put(buffer.flip());
+      }
+    }
+
+    @Override
+    public int correlationId() {
+      return correlationId;
+    }
+
+    @Override
+    public Optional<T> next() {
+      final int start = buffer.position();
+      final long length = Companion.peekVarint(buffer, start);
+      if (length < 0) {
+        return Optional.empty();
+      }
+      if (length > maxFrameSize) {
+        final var msg = "Frame of " + length + " bytes is larger than the maximum of " + maxFrameSize;
+        LOGGER.severe(() -> msg);
+        throw new IllegalArgumentException(msg);
+      }
+      final int end = start + Companion.varintSize((int) length) + (int) length;
+      if (end > buffer.limit()) {
+        pending = end - start;
+        return Optional.empty();
+      }
+      pending = 0;
+      buffer.position(end - (int) length);
+      if (correlated) {
+        final long id = Companion.peekVarint(buffer, buffer.position());
+        if (id < 0) {
+          final var msg = "Frame ends part way through its correlation id";
+          LOGGER.severe(() -> msg);
+          throw new IllegalArgumentException(msg);
+        }
+        correlationId = (int) id;
+        buffer.position(buffer.position() + Companion.varintSize(correlationId));
+      }
+      final long tag = Companion.peekVarint(buffer, buffer.position());
+      if (tag < 0 || tag >= records.length) {
+        final var msg = "Invalid frame tag " + tag + " for " + records.length + " record types";
+        LOGGER.severe(() -> msg);
+        throw new IllegalArgumentException(msg);
+      }
+      final int payloadStart = buffer.position() + Companion.varintSize((int) tag);
+      final ByteBuffer payload = buffer.slice(payloadStart, end - payloadStart);
+      try {
+        @SuppressWarnings("unchecked") final T message = (T) pickler((int) tag).deserialize(payload);
+        if (payload.hasRemaining()) {
+          final var msg = "Frame of " + records[(int) tag].getName() + " has " + payload.remaining() +
+              " bytes after the message";
+          LOGGER.severe(() -> msg);
+          throw new IllegalArgumentException(msg);
+        }
+        return Optional.of(message);
+      } catch (BufferUnderflowException e) {
+        final var msg = "Frame of " + records[(int) tag].getName() + " ends part way through the message";
+        LOGGER.severe(() -> msg);
+        throw new IllegalArgumentException(msg, e);
+      } finally {
+        buffer.position(end);
+      }
+    }
+  }
+}
+
+/// The stack of partly decoded values of a [Pickler.ResumableDecoder].
+/// @param <T> The record type or sealed interface of the messages
+final class IncrementalDecoder<T> implements Pickler.ResumableDecoder<T> {
+
+  /// A value that is filled from the values that follow it in the message.
+  interface Container {
+    boolean full();
+
+    void add(Object value);
+
+    Object build();
+  }
+
+  static final class RecordContainer implements Container {
+    final RecordPickler<?> pickler;
+    final Object[] components;
+    int index;
+
+    RecordContainer(RecordPickler<?> pickler, int count) {
+      this.pickler = pickler;
+      this.components = new Object[count];
+    }
+
+    public boolean full() {
+      return index == components.length;
+    }
+
+    public void add(Object value) {
+      components[index++] = value;
+    }
+
+    public Object build() {
+      return pickler.fromComponents(components);
+    }
+  }
+
+  static final class ListContainer implements Container {
+    final Object[] elements;
+    int index;
+
+    ListContainer(int count) {
+      this.elements = new Object[count];
+    }
+
+    public boolean full() {
+      return index == elements.length;
+    }
+
+    public void add(Object value) {
+      elements[index++] = value;
+    }
+
+    public Object build() {
+      return Collections.unmodifiableList(Arrays.asList(elements));
+    }
+  }
+
+  static final class MapContainer implements Container {
+    final Map.Entry<?, ?>[] entries;
+    Object key;
+    int index;
+
+    MapContainer(int count) {
+      this.entries = new Map.Entry<?, ?>[count];
+    }
+
+    public boolean full() {
+      return index == entries.length;
+    }
+
+    public void add(Object value) {
+      if (key == null) {
+        key = Objects.requireNonNull(value);
+      } else {
+        entries[index++] = Map.entry(key, Objects.requireNonNull(value));
+        key = null;
+      }
+    }
+
+    public Object build() {
+      return Map.ofEntries(entries);
+    }
+  }
+
+  static final class ArrayContainer implements Container {
+    final Object array;
+    int index;
+
+    ArrayContainer(Object array) {
+      this.array = array;
+    }
+
+    public boolean full() {
+      return index == Array.getLength(array);
+    }
+
+    public void add(Object value) {
+      Array.set(array, index++, value);
+    }
+
+    public Object build() {
+      return array;
+    }
+  }
+
+  static final class OptionalContainer implements Container {
+    Optional<?> value;
+
+    public boolean full() {
+      return value != null;
+    }
+
+    public void add(Object value) {
+      this.value = Optional.ofNullable(value);
+    }
+
+    public Object build() {
+      return value;
+    }
+  }
+
+  /// What the decoder is reading. A step with a width fills [#scratch] with that many bytes and a step without one
+  /// fills [#bytes] with a length that was read by the step before it.
+  enum Step {
+    SEALED_NAME_LENGTH(Integer.BYTES),
+    SEALED_NAME(0),
+    COMPONENT_COUNT(1),
+    MARKER(1),
+    BOOLEAN(1),
+    BYTE(Byte.BYTES),
+    SHORT(Short.BYTES),
+    CHARACTER(Character.BYTES),
+    INTEGER(Integer.BYTES),
+    LONG(Long.BYTES),
+    FLOAT(Float.BYTES),
+    DOUBLE(Double.BYTES),
+    UUID(2 * Long.BYTES),
+    STRING_LENGTH(Short.BYTES),
+    STRING(0),
+    OPTIONAL_PRESENT(1),
+    CLASS_NAME_LENGTH(Integer.BYTES),
+    CLASS_NAME(0),
+    ARRAY_LENGTH(Integer.BYTES),
+    BYTE_ARRAY(0),
+    MAP_COUNT(Integer.BYTES),
+    LIST_COUNT(Integer.BYTES),
+    ENUM_NAME_LENGTH(Integer.BYTES),
+    ENUM_NAME(0);
+
+    final int width;
+
+    Step(int width) {
+      this.width = width;
+    }
+  }
+
+  static final byte[] EMPTY = new byte[0];
+
+  final Class<T> type;
+  final Map<String, Class<?>> permitted;
+  final Deque<Container> stack = new ArrayDeque<>();
+  /// Holds the fixed size values and lengths which are at most two longs for a UUID.
+  final ByteBuffer scratch = ByteBuffer.allocate(2 * Long.BYTES);
+  Step step;
+  /// The string, class name, enum name or byte array being filled when not null.
+  byte[] bytes;
+  int filled;
+  /// The marker of the value that the class being read is for which is a record, an array or an enum.
+  Constants classFor;
+  /// The offset of the class name being read that later references to it hold.
+  int classAt;
+  /// The component type of the array or the class of the enum whose length or name is being read.
+  Class<?> resolved;
+  /// The pickler of the record whose component count is being read.
+  RecordPickler<?> pending;
+  Map<Integer, Class<?>> classes = new HashMap<>();
+  /// The bytes of the current message so far which is the buffer position that class names are referred back to by.
+  int consumed;
+  boolean complete;
+  Object message;
+
+  IncrementalDecoder(Class<T> type) {
+    if (!type.isRecord() && !type.isSealed()) {
+      final var msg = "Messages are records or sealed interfaces but got " + type.getName();
+      LOGGER.severe(() -> msg);
+      throw new IllegalArgumentException(msg);
+    }
+    this.type = type;
+    this.permitted = type.isSealed() ? SealedPickler.shortNames(type).entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey)) : Map.of();
+    start();
+  }
+
+  @Override
+  public Optional<T> decode(ByteBuffer fragment) {
+    while (!complete && fragment.hasRemaining()) {
+      if (bytes != null) {
+        final int n = Math.min(bytes.length - filled, fragment.remaining());
+        fragment.get(bytes, filled, n);
+        filled += n;
+        consumed += n;
+        if (filled == bytes.length) {
+          final byte[] done = bytes;
+          bytes = null;
+          filledBytes(done);
+        }
+      } else {
+        final int n = Math.min(scratch.remaining(), fragment.remaining());
+        scratch.put(scratch.position(), fragment, fragment.position(), n);
+        scratch.position(scratch.position() + n);
+        fragment.position(fragment.position() + n);
+        consumed += n;
+        if (!scratch.hasRemaining()) {
+          filledScratch(scratch.flip());
+        }
+      }
+    }
+    if (!complete) {
+      return Optional.empty();
+    }
+    final T result = type.cast(message);
+    if (result != null) {
+      Companion.METRICS.get(result.getClass()).deserialized(consumed);
+    }
+    start();
+    return Optional.of(result);
+  }
+
+  @Override
+  public boolean partial() {
+    return consumed > 0;
+  }
+
+  @Override
+  public void reset() {
+    start();
+  }
+
+  void start() {
+    stack.clear();
+    classes = new HashMap<>();
+    bytes = null;
+    resolved = null;
+    pending = null;
+    consumed = 0;
+    complete = false;
+    message = null;
+    if (type.isRecord()) {
+      beginRecord(type);
+    } else {
+      read(Step.SEALED_NAME_LENGTH);
+    }
+  }
+
+  /// Waits for the fixed number of bytes of a step.
+  void read(Step next) {
+    step = next;
+    scratch.clear().limit(next.width);
+  }
+
+  /// Waits for a length prefixed array of bytes.
+  void readBytes(Step next, int length) {
+    if (length < 0) {
+      final var msg = "Invalid length: " + length;
+      LOGGER.severe(() -> msg);
+      throw new IllegalArgumentException(msg);
+    }
+    step = next;
+    if (length == 0) {
+      filledBytes(EMPTY);
+    } else {
+      bytes = new byte[length];
+      filled = 0;
+    }
+  }
+
+  void filledScratch(ByteBuffer value) {
+    switch (step) {
+      case SEALED_NAME_LENGTH -> readBytes(Step.SEALED_NAME, nameLength(value.getInt()));
+      case COMPONENT_COUNT -> push(new RecordContainer(pending, value.get() & 0xFF));
+      case MARKER -> marker(fromMarker(value.get()));
+      case BOOLEAN -> value(value.get() == 1);
+      case BYTE -> value(value.get());
+      case SHORT -> value(value.getShort());
+      case CHARACTER -> value(value.getChar());
+      case INTEGER -> value(value.getInt());
+      case LONG -> value(value.getLong());
+      case FLOAT -> value(value.getFloat());
+      case DOUBLE -> value(value.getDouble());
+      case UUID -> value(new UUID(value.getLong(), value.getLong()));
+      case STRING_LENGTH -> readBytes(Step.STRING, value.getShort());
+      case OPTIONAL_PRESENT -> {
+        if (value.get() == 0) {
+          value(Optional.empty());
+        } else {
+          push(new OptionalContainer());
+        }
+      }
+      case CLASS_NAME_LENGTH -> {
+        final int n = nameLength(value.getInt());
+        if (n < 0) {
+          final Class<?> referenced = classes.get(~n);
+          if (referenced == null) {
+            final var msg = "Invalid class reference offset: " + ~n;
+            LOGGER.severe(() -> msg);
+            throw new IllegalArgumentException(msg);
+          }
+          resolvedClass(referenced);
+        } else {
+          readBytes(Step.CLASS_NAME, n);
+        }
+      }
+      case ARRAY_LENGTH -> {
+        final int n = value.getInt();
+        if (resolved == byte.class) {
+          readBytes(Step.BYTE_ARRAY, n);
+        } else {
+          push(new ArrayContainer(Array.newInstance(resolved, count(n, "array length"))));
+        }
+      }
+      case MAP_COUNT -> push(new MapContainer(count(value.getInt(), "map size")));
+      case LIST_COUNT -> push(new ListContainer(count(value.getInt(), "list size")));
+      case ENUM_NAME_LENGTH -> readBytes(Step.ENUM_NAME, value.getInt());
+      case SEALED_NAME, STRING, CLASS_NAME, BYTE_ARRAY, ENUM_NAME -> throw new IllegalStateException(step.name());
+    }
+  }
+
+  void filledBytes(byte[] value) {
+    switch (step) {
+      case SEALED_NAME -> {
+        final Class<?> recordClass = permitted.get(new String(value, UTF_8));
+        if (recordClass == null) {
+          final var msg = "Unknown subtype of " + type.getName() + ": " + new String(value, UTF_8);
+          LOGGER.severe(() -> msg);
+          throw new IllegalArgumentException(msg);
+        }
+        beginRecord(recordClass);
+      }
+      case STRING -> value(new String(value, UTF_8));
+      case CLASS_NAME -> {
+        try {
+          final Class<?> loaded = classForWireName(new String(value, UTF_8));
+          classes.put(classAt, loaded);
+          resolvedClass(loaded);
+        } catch (ClassNotFoundException e) {
+          final var msg = "Failed to load class: " + e.getMessage();
+          LOGGER.severe(() -> msg);
+          throw new IllegalArgumentException(msg, e);
+        }
+      }
+      case BYTE_ARRAY -> value(value);
+      case ENUM_NAME -> value(enumValueOf(resolved, new String(value, UTF_8)));
+      default -> throw new IllegalStateException(step.name());
+    }
+  }
+
+  static int nameLength(int length) {
+    if (length > Short.MAX_VALUE) {
+      final var msg = "The max length of a class name is " + Short.MAX_VALUE + " bytes but got " + length;
+      LOGGER.severe(() -> msg);
+      throw new IllegalArgumentException(msg);
+    }
+    return length;
+  }
+
+  static int count(int count, String what) {
+    if (count < 0) {
+      final var msg = "Invalid " + what + ": " + count;
+      LOGGER.severe(() -> msg);
+      throw new IllegalArgumentException(msg);
+    }
+    return count;
+  }
+
+  void beginRecord(Class<?> recordClass) {
+    pending = (RecordPickler<?>) Pickler.forRecord(recordClass.asSubclass(Record.class));
+    read(Step.COMPONENT_COUNT);
+  }
+
+  void push(Container container) {
+    stack.push(container);
+    next();
+  }
+
+  /// Reads the next value of the container on top of the stack or completes it.
+  void next() {
+    final Container top = stack.peek();
+    if (top.full()) {
+      stack.pop();
+      value(top.build());
+    } else {
+      read(Step.MARKER);
+    }
+  }
+
+  void value(Object value) {
+    final Container parent = stack.peek();
+    if (parent == null) {
+      message = value;
+      complete = true;
+    } else {
+      parent.add(value);
+      next();
+    }
+  }
+
+  /// Mirrors [Companion#deserializeValue] one step at a time.
+  void marker(Constants marker) {
+    switch (marker) {
+      case NULL -> value(null);
+      case BOOLEAN -> read(Step.BOOLEAN);
+      case BYTE -> read(Step.BYTE);
+      case SHORT -> read(Step.SHORT);
+      case CHARACTER -> read(Step.CHARACTER);
+      case INTEGER -> read(Step.INTEGER);
+      case LONG -> read(Step.LONG);
+      case FLOAT -> read(Step.FLOAT);
+      case DOUBLE -> read(Step.DOUBLE);
+      case UUID -> read(Step.UUID);
+      case STRING -> read(Step.STRING_LENGTH);
+      case OPTIONAL -> read(Step.OPTIONAL_PRESENT);
+      case MAP -> read(Step.MAP_COUNT);
+      case LIST -> read(Step.LIST_COUNT);
+      case RECORD, ARRAY, ENUM -> {
+        // mirrors [Companion#resolveClass] where a class name is recorded at the offset of its length
+        classFor = marker;
+        classAt = consumed;
+        read(Step.CLASS_NAME_LENGTH);
+      }
+    }
+  }
+
+  /// Continues the record, array or enum once its class is known.
+  void resolvedClass(Class<?> resolvedClass) {
+    switch (classFor) {
+      case RECORD -> beginRecord(resolvedClass);
+      case ARRAY -> {
+        resolved = resolvedClass;
+        read(Step.ARRAY_LENGTH);
+      }
+      case ENUM -> {
+        if (!resolvedClass.isEnum()) {
+          final var msg = "Expected enum class but got: " + resolvedClass.getName();
+          LOGGER.severe(() -> msg);
+          throw new IllegalArgumentException(msg);
+        }
+        resolved = resolvedClass;
+        read(Step.ENUM_NAME_LENGTH);
+      }
+      default -> throw new IllegalStateException(classFor.name());
+    }
+  }
+}
@@ -0,0 +1,123 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import io.github.simbo1905.no.framework.model.Person;
+import io.github.simbo1905.no.framework.tree.InternalNode;
+import io.github.simbo1905.no.framework.tree.LeafNode;
+import io.github.simbo1905.no.framework.tree.TreeNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/// Measures the bytes that the current thread allocates per `serialize` and `deserialize` call for a matrix of record
+/// shapes and fails when a shape exceeds its budget. Lower a budget when a change reduces allocation so that the
+/// reduction cannot silently regress. The budgets leave headroom for differences between JVM builds as the JIT may
+/// eliminate some allocations by escape analysis.
+class AllocationBudgetTest {
+
+  /// Round trips before measuring so that the pickler is promoted and the JIT has compiled the paths
+  static final int WARMUP = 20_000;
+
+  static final int ITERATIONS = 10_000;
+
+  static com.sun.management.ThreadMXBean threads;
+
+  enum Level {LOW, HIGH}
+
+  record Primitives(int i, long l, double d, boolean b, Level level) {
+  }
+
+  record Strings(String name, Optional<String> note, UUID id) {
+  }
+
+  record Collections(List<Integer> numbers, Map<String, Integer> counts) {
+  }
+
+  record Arrays(int[] ints, String[] names) {
+  }
+
+  record Empty() {
+  }
+
+  @BeforeAll
+  static void threadAllocatedBytes() {
+    assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+        "Allocation is measured with com.sun.management.ThreadMXBean");
+    threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  static <T> void assertBudget(Pickler<T> pickler, T value, long serializeBudget, long deserializeBudget) {
+    final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(value));
+    for (int i = 0; i < WARMUP; i++) {
+      pickler.serialize(value, buffer.clear());
+      pickler.deserialize(buffer.flip());
+    }
+    final long serialize = allocatedPerCall(() -> pickler.serialize(value, buffer.clear()));
+    final long deserialize = allocatedPerCall(() -> pickler.deserialize(buffer.rewind()));
+    final String shape = value.getClass().getSimpleName();
+    System.out.printf("%s serialize %d bytes deserialize %d bytes%n", shape, serialize, deserialize);
+    assertTrue(serialize <= serializeBudget,
+        () -> shape + " serialize allocated " + serialize + " bytes per call over its budget of " + serializeBudget);
+    assertTrue(deserialize <= deserializeBudget,
+        () -> shape + " deserialize allocated " + deserialize + " bytes per call over its budget of " + deserializeBudget);
+  }
+
+  static long allocatedPerCall(Runnable call) {
+    final long thread = Thread.currentThread().threadId();
+    final long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < ITERATIONS; i++) {
+      call.run();
+    }
+    return (threads.getThreadAllocatedBytes(thread) - before) / ITERATIONS;
+  }
+
+  @Test
+  void testPerson() {
+    assertBudget(Pickler.forRecord(Person.class), new Person("Alice", 30), 400, 600);
+  }
+
+  @Test
+  void testPrimitives() {
+    assertBudget(Pickler.forRecord(Primitives.class), new Primitives(1, 2L, 3.0, true, Level.HIGH), 800, 3_300);
+  }
+
+  @Test
+  void testStrings() {
+    assertBudget(Pickler.forRecord(Strings.class), new Strings("name", Optional.of("note"), new UUID(1, 2)), 450, 1_000);
+  }
+
+  @Test
+  void testCollections() {
+    assertBudget(Pickler.forRecord(Collections.class),
+        new Collections(List.of(1, 2, 3, 4), Map.of("a", 1, "b", 2)), 700, 2_200);
+  }
+
+  @Test
+  void testArrays() {
+    assertBudget(Pickler.forRecord(Arrays.class), new Arrays(new int[]{1, 2, 3, 4}, new String[]{"a", "b"}), 1_100, 6_000);
+  }
+
+  @Test
+  void testEmpty() {
+    assertBudget(Pickler.forRecord(Empty.class), new Empty(), 0, 0);
+  }
+
+  @Test
+  void testSealedTree() {
+    final TreeNode tree = new InternalNode("root",
+        new InternalNode("left", new LeafNode(1), new LeafNode(2)), new LeafNode(3));
+    assertBudget(Pickler.forSealedInterface(TreeNode.class), tree, 2_200, 6_300);
+  }
+}
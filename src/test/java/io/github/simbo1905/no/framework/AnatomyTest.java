@@ -0,0 +1,94 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import io.github.simbo1905.no.framework.tree.InternalNode;
+import io.github.simbo1905.no.framework.tree.LeafNode;
+import io.github.simbo1905.no.framework.tree.TreeNode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static io.github.simbo1905.no.framework.Pickler.Anatomy.Part.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests for attributing the bytes of pickled messages with [Pickler.Anatomy].
+class AnatomyTest {
+
+  public enum Colour {RED, GREEN}
+
+  public record Inner(long id, Colour colour) {
+  }
+
+  public record Everything(int number, String text, Optional<String> note, List<Integer> list, Map<String, Long> map,
+                           Colour colour, byte[] bytes, double[] doubles, UUID uuid, Inner inner, Inner[] inners) {
+  }
+
+  static <T> ByteBuffer pickle(Pickler<T> pickler, T value) {
+    final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(value));
+    pickler.serialize(value, buffer);
+    return buffer.flip();
+  }
+
+  @Test
+  void testTreeBytesAreAttributed() {
+    final Pickler<TreeNode> pickler = Pickler.forSealedInterface(TreeNode.class);
+    final TreeNode tree = new InternalNode("root", new LeafNode(1), new InternalNode("b", new LeafNode(2), null));
+    final ByteBuffer buffer = pickle(pickler, tree);
+    final int size = buffer.remaining();
+
+    final var anatomy = Pickler.Anatomy.of(TreeNode.class, List.of(buffer));
+    assertFalse(buffer.hasRemaining());
+    assertEquals(1, anatomy.messages());
+
+    assertEquals(size, anatomy.bytes());
+    // the sealed interface writes the record name without the package that the records share
+    assertEquals(Integer.BYTES + "InternalNode".length(), anatomy.bytes("TreeNode", CLASS_NAME));
+    assertEquals("rootb".length(), anatomy.bytes("InternalNode.name", VALUE));
+    assertEquals(2 * Short.BYTES, anatomy.bytes("InternalNode.name", LENGTH));
+    // the second leaf refers back to the class name written for the first one
+    assertEquals(Integer.BYTES + LeafNode.class.getName().length(), anatomy.bytes("InternalNode.left", CLASS_NAME));
+    assertEquals(Integer.BYTES, anatomy.bytes(CLASS_REFERENCE));
+    assertEquals(2 * Integer.BYTES, anatomy.bytes("LeafNode.value", VALUE));
+    assertEquals(2, anatomy.bytes("LeafNode", LENGTH));
+
+    final String table = anatomy.table();
+    assertTrue(table.lines().anyMatch(line -> line.startsWith("InternalNode.right")), table);
+    assertTrue(table.lines().reduce((first, second) -> second).orElseThrow().startsWith("Total"), table);
+
+    final var twice = Pickler.Anatomy.of(TreeNode.class, List.of(pickle(pickler, tree), pickle(pickler, tree)));
+    assertEquals(2, twice.messages());
+    assertEquals(2L * size, twice.bytes());
+    assertEquals(2 * anatomy.bytes("InternalNode.left", CLASS_NAME), twice.bytes("InternalNode.left", CLASS_NAME));
+  }
+
+  @Test
+  void testEveryByteOfEveryTypeIsCounted() {
+    final Pickler<Everything> pickler = Pickler.forRecord(Everything.class);
+    final List<ByteBuffer> buffers = Pickler.Samples.withSeed(3).stream(Everything.class).limit(50)
+        .map(value -> pickle(pickler, value))
+        .toList();
+    final long total = buffers.stream().mapToLong(ByteBuffer::remaining).sum();
+    final var anatomy = Pickler.Anatomy.of(Everything.class, buffers);
+    assertTrue(buffers.stream().noneMatch(ByteBuffer::hasRemaining));
+
+    assertEquals(total, anatomy.bytes());
+    assertEquals(50 * 16, anatomy.bytes("Everything.uuid", VALUE));
+    assertEquals(50, anatomy.bytes("Everything", LENGTH));
+    assertTrue(anatomy.bytes("Everything.map", LENGTH) >= 50 * Integer.BYTES);
+    // the enum is named by the first component that holds one and referred back to by the inner record
+    assertEquals(50L * (Integer.BYTES + Colour.class.getName().length()), anatomy.bytes("Everything.colour", CLASS_NAME));
+    assertEquals(0, anatomy.bytes("Inner.colour", CLASS_NAME));
+    assertTrue(anatomy.bytes("Inner.colour", CLASS_REFERENCE) > 0);
+    assertTrue(anatomy.bytes("Everything.inners", CLASS_REFERENCE) > 0);
+  }
+
+  @Test
+  void testUnsupportedType() {
+    assertThrows(IllegalArgumentException.class, () -> Pickler.Anatomy.of(String.class, List.of()));
+  }
+}
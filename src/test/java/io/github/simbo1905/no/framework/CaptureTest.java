@@ -0,0 +1,112 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import io.github.simbo1905.no.framework.tree.InternalNode;
+import io.github.simbo1905.no.framework.tree.LeafNode;
+import io.github.simbo1905.no.framework.tree.TreeNode;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static io.github.simbo1905.no.framework.Pickler.Listener.Operation.DESERIALIZE;
+import static io.github.simbo1905.no.framework.Pickler.Listener.Operation.SERIALIZE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests for capturing slow and oversized messages with [Pickler.Capture].
+class CaptureTest {
+
+  record Payload(int id, String text) {
+  }
+
+  static Payload payload(int id, int length) {
+    return new Payload(id, "x".repeat(length));
+  }
+
+  static ByteBuffer pickle(Pickler<Payload> pickler, Payload payload) {
+    final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(payload));
+    pickler.serialize(payload, buffer);
+    return buffer.flip();
+  }
+
+  @Test
+  void testOversizedMessagesAreKeptInABoundedRing() {
+    final Pickler<Payload> pickler = Pickler.forRecord(Payload.class);
+    final var capture = Pickler.startCapture(Duration.ofDays(1), 100, 3);
+    try {
+      pickler.serialize(payload(0, 10), ByteBuffer.allocate(64));
+      IntStream.rangeClosed(1, 5).forEach(id -> pickle(pickler, payload(id, 200)));
+      assertEquals(payload(6, 200), pickler.deserialize(pickle(pickler, payload(6, 200))));
+    } finally {
+      assertSame(capture, Pickler.stopCapture().orElseThrow());
+    }
+    pickle(pickler, payload(7, 200));
+
+    final var messages = capture.messages();
+    assertEquals(List.of(SERIALIZE, SERIALIZE, DESERIALIZE), messages.stream().map(Pickler.Capture.Message::operation).toList());
+    assertEquals(List.of(5, 6, 6), messages.stream().map(m -> pickler.deserialize(m.buffer()).id()).toList());
+    assertEquals(Payload.class.getName(), messages.getFirst().type());
+    assertEquals(7, capture.getCaptured());
+  }
+
+  @Test
+  void testCapturedMessagesAreReadAtTheirOffset() {
+    final Pickler<TreeNode> pickler = Pickler.forSealedInterface(TreeNode.class);
+    final TreeNode tree = new InternalNode("root", new LeafNode(1), new InternalNode("b", new LeafNode(2), null));
+    final ByteBuffer buffer = ByteBuffer.allocate(1024);
+    buffer.position(100);
+    final var capture = Pickler.startCapture(Duration.ZERO, 0, 10);
+    try {
+      pickler.serialize(tree, buffer);
+    } finally {
+      Pickler.stopCapture();
+    }
+    assertTrue(Pickler.stopCapture().isEmpty());
+
+    final var message = capture.messages().getLast();
+    assertEquals(1, capture.messages().size());
+    assertEquals(InternalNode.class.getName(), message.type());
+    // the record repeats class names which are read back by their position in the buffer
+    assertEquals(100 + 4 + "InternalNode".length(), message.offset());
+    assertEquals(tree, Pickler.forRecord(InternalNode.class).deserialize(message.buffer()));
+  }
+
+  @Test
+  void testDumpAndRead() throws IOException, JMException {
+    final Pickler<Payload> pickler = Pickler.forRecord(Payload.class);
+    final Path file = Files.createTempFile("capture", ".bin");
+    try {
+      final var capture = Pickler.startCapture(Duration.ZERO, Integer.MAX_VALUE, 10);
+      try {
+        pickle(pickler, payload(1, 3));
+        pickle(pickler, payload(2, 4));
+        ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName("io.github.simbo1905.no.framework:type=Capture"),
+            "dump", new Object[]{file.toString()}, new String[]{String.class.getName()});
+      } finally {
+        Pickler.stopCapture();
+      }
+      final var read = Pickler.Capture.read(file);
+      assertEquals(2, read.size());
+      assertArrayEquals(capture.messages().getLast().bytes(), read.getLast().bytes());
+      assertEquals(capture.messages().getFirst().nanos(), read.getFirst().nanos());
+      assertEquals(payload(2, 4), pickler.deserialize(read.getLast().buffer()));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void testInvalidThresholds() {
+    assertThrows(IllegalArgumentException.class, () -> Pickler.startCapture(Duration.ZERO, 0, 0));
+    assertThrows(IllegalArgumentException.class, () -> Pickler.startCapture(Duration.ofMillis(-1), 0, 1));
+  }
+}
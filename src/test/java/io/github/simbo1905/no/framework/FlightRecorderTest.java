@@ -0,0 +1,119 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests that the pickler operations and pickler creation are visible to Flight Recorder.
+class FlightRecorderTest {
+
+  sealed interface Shape permits Circle, Square {
+  }
+
+  record Circle(double radius) implements Shape {
+  }
+
+  record Square(double side) implements Shape {
+  }
+
+  record Drawing(Circle circle, Square square) {
+  }
+
+  static final List<String> EVENTS = List.of("Serialize", "Deserialize", "SizeOf", "Create").stream()
+      .map(name -> "io.github.simbo1905.no.framework." + name)
+      .toList();
+
+  static List<RecordedEvent> record(Runnable work) throws IOException {
+    final Path file = Files.createTempFile("pickler", ".jfr");
+    try (var recording = new Recording()) {
+      EVENTS.forEach(name -> recording.enable(name).withThreshold(Duration.ZERO));
+      recording.start();
+      work.run();
+      recording.stop();
+      recording.dump(file);
+      return RecordingFile.readAllEvents(file).stream()
+          .filter(event -> EVENTS.contains(event.getEventType().getName()))
+          .toList();
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  static List<RecordedEvent> named(List<RecordedEvent> events, String name, Class<?> type) {
+    return events.stream()
+        .filter(event -> event.getEventType().getName().endsWith("." + name))
+        .filter(event -> type.getName().equals(event.getString("type")))
+        .toList();
+  }
+
+  @Test
+  void testOperationsAreRecorded() throws IOException {
+    final var events = record(() -> {
+      final Pickler<Shape> pickler = Pickler.forSealedInterface(Shape.class);
+      final Shape circle = new Circle(2.0);
+      final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(circle));
+      pickler.serialize(circle, buffer);
+      buffer.flip();
+      assertEquals(circle, pickler.deserialize(buffer));
+    });
+
+    final var created = named(events, "Create", Shape.class);
+    assertEquals(1, created.size());
+    assertEquals("NONE", created.getFirst().getString("compatibility"));
+
+    final var serialized = named(events, "Serialize", Shape.class);
+    assertEquals(1, serialized.size());
+    final var deserialized = named(events, "Deserialize", Shape.class);
+    assertEquals(1, deserialized.size());
+    assertEquals(serialized.getFirst().getLong("bytes"), deserialized.getFirst().getLong("bytes"));
+
+    // only the outermost operation is recorded so the record that the sealed pickler delegates to has no events
+    assertTrue(named(events, "Serialize", Circle.class).isEmpty());
+    assertTrue(named(events, "Deserialize", Circle.class).isEmpty());
+    assertTrue(named(events, "SizeOf", Circle.class).isEmpty());
+    assertEquals(1, named(events, "SizeOf", Shape.class).size());
+    assertEquals(1, named(events, "Create", Circle.class).size());
+  }
+
+  @Test
+  void testNestedRecordsAreNotRecorded() throws IOException {
+    final Pickler<Drawing> pickler = Pickler.forRecord(Drawing.class);
+    final var drawing = new Drawing(new Circle(1.0), new Square(2.0));
+    final var events = record(() -> pickler.serialize(drawing, ByteBuffer.allocate(pickler.sizeOf(drawing))));
+
+    assertEquals(1, named(events, "SizeOf", Drawing.class).size());
+    assertEquals(1, named(events, "Serialize", Drawing.class).size());
+    assertTrue(named(events, "SizeOf", Circle.class).isEmpty());
+    assertTrue(named(events, "SizeOf", Square.class).isEmpty());
+  }
+
+  @Test
+  void testDefaultThresholdSkipsFastOperations() throws IOException {
+    final Pickler<Square> pickler = Pickler.forRecord(Square.class);
+    final Path file = Files.createTempFile("pickler", ".jfr");
+    try (var recording = new Recording()) {
+      EVENTS.forEach(recording::enable);
+      recording.start();
+      final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(new Square(1.0)));
+      pickler.serialize(new Square(1.0), buffer);
+      recording.stop();
+      recording.dump(file);
+      assertTrue(RecordingFile.readAllEvents(file).stream()
+          .noneMatch(event -> event.getEventType().getName().endsWith(".Serialize")));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import io.github.simbo1905.no.framework.protocol.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests for the length prefixed frames of [Pickler.Framing].
+class FramingTest {
+
+  static final List<StackCommand> COMMANDS = List.of(new Push("a"), new Peek(), new Push("b".repeat(300)), new Pop(),
+      new Push(""), new Push("c".repeat(20_000)), new Peek());
+
+  static <T> List<T> drain(Pickler.Framing.Decoder<T> decoder) {
+    final List<T> messages = new ArrayList<>();
+    for (Optional<T> message = decoder.next(); message.isPresent(); message = decoder.next()) {
+      messages.add(message.get());
+    }
+    return messages;
+  }
+
+  @Test
+  void testFramesDecodeFromFragments() {
+    final var framing = Pickler.Framing.of(StackCommand.class);
+    final ByteBuffer frames = ByteBuffer.allocate(64 * 1024);
+    assertEquals(COMMANDS.size(), framing.encode(COMMANDS, frames));
+    frames.flip();
+
+    final var decoder = framing.decoder(8, 1024 * 1024);
+    final var random = new SplittableRandom(5);
+    final List<StackCommand> decoded = new ArrayList<>();
+    while (frames.hasRemaining()) {
+      final int fragment = Math.min(frames.remaining(), random.nextInt(1, 700));
+      decoder.feed(frames.slice(frames.position(), fragment));
+      frames.position(frames.position() + fragment);
+      decoded.addAll(drain(decoder));
+    }
+    assertEquals(COMMANDS, decoded);
+    assertTrue(decoder.next().isEmpty());
+  }
+
+  @Test
+  void testTagReplacesTheClassName() {
+    final var framing = Pickler.Framing.of(StackCommand.class);
+    final Pickler<StackCommand> pickler = Pickler.forSealedInterface(StackCommand.class);
+    final StackCommand push = new Push("item");
+    final ByteBuffer frame = ByteBuffer.allocate(64);
+    framing.encode(push, frame);
+    final ByteBuffer message = ByteBuffer.allocate(64);
+    pickler.serialize(push, message);
+    // one byte of length and one of tag instead of four bytes of length and the name "ush" after the shared "P"
+    assertEquals(message.position() - Integer.BYTES - "ush".length() + 2, frame.position());
+    assertEquals(0, frame.get(1), "Push is the first permitted record");
+  }
+
+  @Test
+  void testPayloadMovesWhenTheLengthSizeChanges() {
+    final var framing = Pickler.Framing.of(Push.class);
+    for (ByteBuffer buffer : List.of(ByteBuffer.allocate(4096), ByteBuffer.allocateDirect(4096))) {
+      final List<Push> pushes = IntStream.of(1, 200, 1, 1, 3000, 100, 1).mapToObj(n -> new Push("p".repeat(n))).toList();
+      pushes.forEach(push -> framing.encode(push, buffer));
+      buffer.flip();
+      final var decoder = framing.decoder();
+      decoder.feed(buffer);
+      assertEquals(pushes, drain(decoder));
+    }
+  }
+
+  @Test
+  void testLengthGuessFollowsThePreviousFrame() {
+    final var framing = new FrameCodec<>(Push.class, false);
+    assertEquals(1, framing.lengthSize);
+    final ByteBuffer buffer = ByteBuffer.allocate(4096);
+    framing.encode(new Push("p".repeat(200)), buffer);
+    assertEquals(2, framing.lengthSize);
+    framing.encode(new Push("p"), buffer);
+    assertEquals(1, framing.lengthSize);
+  }
+
+  @Test
+  void testGatherStopsAtAFrameBoundary() {
+    final var framing = Pickler.Framing.of(StackCommand.class);
+    final ByteBuffer buffer = ByteBuffer.allocate(100);
+    final int framed = framing.encode(COMMANDS, buffer);
+    assertEquals(2, framed);
+    final int position = buffer.position();
+    assertThrows(BufferOverflowException.class, () -> framing.encode(COMMANDS.get(2), buffer));
+    assertEquals(position, buffer.position());
+
+    final var decoder = framing.decoder();
+    decoder.feed(buffer.flip());
+    assertEquals(COMMANDS.subList(0, framed), drain(decoder));
+  }
+
+  @Test
+  void testDecodeFromANonBlockingChannel() throws IOException {
+    final var framing = Pickler.Framing.of(StackResponse.class);
+    final List<StackResponse> responses = List.of(new Success(Optional.of("x")), new Failure("empty"),
+        new Success(Optional.empty()));
+    final ByteBuffer frames = ByteBuffer.allocate(1024);
+    framing.encode(responses, frames);
+    frames.flip();
+
+    final Pipe pipe = Pipe.open();
+    try (var sink = pipe.sink(); var source = pipe.source()) {
+      source.configureBlocking(false);
+      final var decoder = framing.decoder(4, 1024);
+      final List<StackResponse> decoded = new ArrayList<>();
+      while (frames.hasRemaining()) {
+        sink.write(frames.slice(frames.position(), Math.min(3, frames.remaining())));
+        frames.position(frames.position() + Math.min(3, frames.remaining()));
+        while (decoder.read(source) > 0) {
+          decoded.addAll(drain(decoder));
+        }
+      }
+      assertEquals(responses, decoded);
+    }
+  }
+
+  @Test
+  void testCorrelationIdsComeBackWithTheirMessages() {
+    final var framing = Pickler.Framing.correlated(StackCommand.class);
+    final ByteBuffer frames = ByteBuffer.allocate(64 * 1024);
+    final int[] ids = {0, 127, 128, 70_000, Integer.MAX_VALUE, 5, 1};
+    IntStream.range(0, COMMANDS.size()).forEach(i -> framing.encode(ids[i], COMMANDS.get(i), frames));
+    frames.flip();
+
+    final var decoder = framing.decoder(8, 1024 * 1024);
+    decoder.feed(frames);
+    for (int i = 0; i < COMMANDS.size(); i++) {
+      assertEquals(COMMANDS.get(i), decoder.next().orElseThrow());
+      assertEquals(ids[i], decoder.correlationId());
+    }
+    assertTrue(decoder.next().isEmpty());
+
+    assertThrows(IllegalArgumentException.class, () -> framing.encode(-1, new Pop(), ByteBuffer.allocate(64)));
+    assertThrows(IllegalArgumentException.class,
+        () -> Pickler.Framing.of(StackCommand.class).encode(1, new Pop(), ByteBuffer.allocate(64)));
+  }
+
+  @Test
+  void testInvalidFrames() {
+    final var framing = Pickler.Framing.of(StackCommand.class);
+    final var small = framing.decoder(16, 100);
+    small.feed(ByteBuffer.wrap(new byte[]{(byte) 0xC8, 0x01}));
+    assertThrows(IllegalArgumentException.class, small::next, "200 bytes is larger than the maximum");
+
+    final var decoder = framing.decoder();
+    decoder.feed(ByteBuffer.wrap(new byte[]{2, 9, 0}));
+    assertThrows(IllegalArgumentException.class, decoder::next, "there are only three record types");
+
+    assertThrows(IllegalArgumentException.class, () -> Pickler.Framing.of(String.class));
+  }
+}
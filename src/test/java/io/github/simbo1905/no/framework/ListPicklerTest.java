@@ -22,6 +22,9 @@ public class ListPicklerTest {
     }
   }
 
+  record NullableListRecord(List<String> list) {
+  }
+
   @Test
   void testImmutableLists() {
     // Here we are deliberately passing in a mutable list to the constructor
@@ -97,6 +100,33 @@ public class ListPicklerTest {
     assertThrows(UnsupportedOperationException.class, () -> deserialized.nestedList().removeFirst());
   }
 
+  @Test
+  void testListWithNullElements() {
+    // Lists may legitimately hold nulls which must survive the round trip
+    final var pickler = Pickler.forRecord(NullableListRecord.class);
+    final var nullable = new NullableListRecord(Arrays.asList("A", null, "C"));
+
+    // Calculate size and allocate buffer
+    final var buffer = ByteBuffer.allocate(pickler.sizeOf(nullable));
+
+    // Serialize
+    pickler.serialize(nullable, buffer);
+    buffer.flip();
+
+    // Deserialize
+    final var deserialized = pickler.deserialize(buffer);
+
+    // Verify contents including the null element
+    assertEquals(nullable.list(), deserialized.list());
+    assertNull(deserialized.list().get(1));
+
+    // Verify the list is immutable
+    assertThrows(UnsupportedOperationException.class, () -> deserialized.list().set(0, "B"));
+
+    // Verify buffer is fully consumed
+    assertEquals(buffer.limit(), buffer.position());
+  }
+
   @Test
   void testOuterLists() {
     // Create a record with nested lists
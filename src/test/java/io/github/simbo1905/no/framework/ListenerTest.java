@@ -0,0 +1,122 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.github.simbo1905.no.framework.Pickler.Listener.Operation.DESERIALIZE;
+import static io.github.simbo1905.no.framework.Pickler.Listener.Operation.SERIALIZE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests for the [Pickler.Listener] callbacks around serialize and deserialize.
+class ListenerTest {
+
+  sealed interface Command permits Start, Stop {
+  }
+
+  record Start(String job) implements Command {
+  }
+
+  record Stop(String job, int code) implements Command {
+  }
+
+  record Call(String phase, Pickler.Listener.Operation operation, Class<?> type, int position, int bytes) {
+  }
+
+  /// Records every callback for the types of this test only as other tests may run picklers at the same time.
+  static final class Recorder implements Pickler.Listener {
+    final List<Call> calls = new ArrayList<>();
+
+    @Override
+    public synchronized void begin(Operation operation, Class<?> type, int position) {
+      if (type.getEnclosingClass() == ListenerTest.class) {
+        calls.add(new Call("begin", operation, type, position, 0));
+      }
+    }
+
+    @Override
+    public synchronized void end(Operation operation, Class<?> type, int position, int bytes) {
+      if (type.getEnclosingClass() == ListenerTest.class) {
+        calls.add(new Call("end", operation, type, position, bytes));
+      }
+    }
+  }
+
+  @Test
+  void testCallbacksWrapEachOperation() {
+    final Pickler<Command> pickler = Pickler.forSealedInterface(Command.class);
+    final Command stop = new Stop("backup", 3);
+    final int size = pickler.sizeOf(stop);
+    final ByteBuffer buffer = ByteBuffer.allocate(size + 5);
+    buffer.position(5);
+
+    final var recorder = new Recorder();
+    Pickler.addListener(recorder);
+    try {
+      pickler.serialize(stop, buffer);
+      final int end = buffer.position();
+      buffer.flip().position(5);
+      assertEquals(stop, pickler.deserialize(buffer));
+
+      final int recordStart = end - Pickler.forRecord(Stop.class).sizeOf((Stop) stop);
+      assertEquals(List.of(
+          new Call("begin", SERIALIZE, Command.class, 5, 0),
+          new Call("begin", SERIALIZE, Stop.class, recordStart, 0),
+          new Call("end", SERIALIZE, Stop.class, end, end - recordStart),
+          new Call("end", SERIALIZE, Command.class, end, end - 5),
+          new Call("begin", DESERIALIZE, Command.class, 5, 0),
+          new Call("begin", DESERIALIZE, Stop.class, recordStart, 0),
+          new Call("end", DESERIALIZE, Stop.class, end, end - recordStart),
+          new Call("end", DESERIALIZE, Command.class, end, end - 5)
+      ), recorder.calls);
+    } finally {
+      Pickler.removeListener(recorder);
+    }
+  }
+
+  @Test
+  void testSeveralListenersAndRemoval() {
+    final Pickler<Start> pickler = Pickler.forRecord(Start.class);
+    final var first = new Recorder();
+    final var second = new Recorder();
+    Pickler.addListener(first);
+    Pickler.addListener(second);
+    try {
+      pickler.serialize(new Start("a"), ByteBuffer.allocate(64));
+      Pickler.removeListener(first);
+      pickler.serialize(new Start("b"), ByteBuffer.allocate(64));
+    } finally {
+      Pickler.removeListener(second);
+    }
+    pickler.serialize(new Start("c"), ByteBuffer.allocate(64));
+
+    assertEquals(2, first.calls.size());
+    assertEquals(4, second.calls.size());
+    assertNull(Companion.listener(), "removing every listener restores the null check");
+  }
+
+  @Test
+  void testEndIsCalledWhenTheOperationThrows() {
+    final Pickler<Start> pickler = Pickler.forRecord(Start.class);
+    final var recorder = new Recorder();
+    Pickler.addListener(recorder);
+    try {
+      assertThrows(BufferOverflowException.class, () -> pickler.serialize(new Start("overflow"), ByteBuffer.allocate(4)));
+      assertThrows(BufferUnderflowException.class, () -> pickler.deserialize(ByteBuffer.allocate(0)));
+    } finally {
+      Pickler.removeListener(recorder);
+    }
+    assertEquals(List.of(
+        new Call("begin", SERIALIZE, Start.class, 0, 0),
+        new Call("end", SERIALIZE, Start.class, 4, 4),
+        new Call("begin", DESERIALIZE, Start.class, 0, 0),
+        new Call("end", DESERIALIZE, Start.class, 0, 0)
+    ), recorder.calls);
+  }
+}
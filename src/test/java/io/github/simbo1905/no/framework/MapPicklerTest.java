@@ -131,6 +131,24 @@ class MapPicklerTest {
     assertNull(deserialized.stringToInt(), "Map should be null");
   }
 
+  /// Test a large Map is decoded into an equal immutable map.
+  @Test
+  void testLargeMap() {
+    // Create a map large enough that the decoded map must be presized from the wire count
+    final var map = new HashMap<String, Integer>();
+    java.util.stream.IntStream.range(0, 100_000).forEach(i -> map.put("key" + i, i));
+
+    // Create a record containing the map
+    final var original = new MapContainer(map);
+
+    // Serialize and deserialize
+    final var deserialized = serializeAndDeserialize(original);
+
+    // Verify map content and immutability
+    assertEquals(original.stringToInt(), deserialized.stringToInt(), "Large map mismatch");
+    assertThrows(UnsupportedOperationException.class, () -> deserialized.stringToInt().remove("key0"));
+  }
+
   /// Helper method to create a nested map for testing
   private Map<String, Map<Integer, String>> createNestedTestMap() {
     final var nestedMap = new HashMap<String, Map<Integer, String>>();
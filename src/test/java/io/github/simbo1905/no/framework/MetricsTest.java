@@ -0,0 +1,107 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests for the per type counters published over JMX.
+class MetricsTest {
+
+  record Reading(String sensor, double value) {
+  }
+
+  sealed interface Signal permits Ping, Pong {
+  }
+
+  record Ping(long at) implements Signal {
+  }
+
+  record Pong(long at, String from) implements Signal {
+  }
+
+  record Version1(int id) {
+  }
+
+  record Version2(int id, String note) {
+    /// Fallback constructor for data written by [Version1]
+    @SuppressWarnings("unused")
+    public Version2(int id) {
+      this(id, "none");
+    }
+  }
+
+  static <T> void roundTrip(Pickler<T> pickler, T value) {
+    final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(value));
+    pickler.serialize(value, buffer);
+    buffer.flip();
+    assertEquals(value, pickler.deserialize(buffer));
+  }
+
+  @Test
+  void testCountersArePublished() throws JMException {
+    final Pickler<Reading> pickler = Pickler.forRecord(Reading.class);
+    final var small = new Reading("a", 1.0);
+    final var large = new Reading("a much longer sensor name", 2.0);
+    final int smallSize = pickler.sizeOf(small);
+    final int largeSize = pickler.sizeOf(large);
+    for (int i = 0; i < 1000; i++) {
+      roundTrip(pickler, i % 2 == 0 ? small : large);
+    }
+
+    final Pickler.MetricsMXBean metrics = Pickler.metrics(Reading.class);
+    assertEquals(Reading.class.getName(), metrics.getType());
+    assertEquals(1000, metrics.getMessagesSerialized());
+    assertEquals(1000, metrics.getMessagesDeserialized());
+    assertEquals(500L * (smallSize + largeSize), metrics.getBytesSerialized());
+    assertEquals(metrics.getBytesSerialized(), metrics.getBytesDeserialized());
+    assertEquals(largeSize, metrics.getMaxMessageSize());
+    assertTrue(metrics.getAverageDecodeNanos() > 0, "some of the decodes are timed");
+    assertEquals(0, metrics.getFallbackConstructorHits());
+
+    ((PicklerMetrics) metrics).published.join();
+    final var server = ManagementFactory.getPlatformMBeanServer();
+    final var name = PicklerMetrics.objectName(Reading.class.getName());
+    assertEquals(1000L, server.getAttribute(name, "MessagesSerialized"));
+    assertEquals((long) largeSize, server.getAttribute(name, "MaxMessageSize"));
+
+    server.invoke(name, "reset", new Object[0], new String[0]);
+    assertEquals(0, metrics.getMessagesSerialized());
+    assertEquals(0, metrics.getMaxMessageSize());
+  }
+
+  @Test
+  void testSealedMessagesCountOnceAgainstTheirRecord() {
+    final Pickler<Signal> pickler = Pickler.forSealedInterface(Signal.class);
+    List.of(new Ping(1), new Pong(2, "b"), new Pong(3, "c")).forEach(signal -> roundTrip(pickler, signal));
+
+    assertEquals(0, Pickler.metrics(Signal.class).getMessagesSerialized());
+    assertEquals(0, Pickler.metrics(Signal.class).getMessagesDeserialized());
+    assertEquals(1, Pickler.metrics(Ping.class).getMessagesSerialized());
+    assertEquals(2, Pickler.metrics(Pong.class).getMessagesSerialized());
+    assertEquals(2, Pickler.metrics(Pong.class).getMessagesDeserialized());
+  }
+
+  @Test
+  void testFallbackConstructorHits() {
+    final Pickler<Version1> writer = Pickler.forRecord(Version1.class);
+    final ByteBuffer buffer = ByteBuffer.allocate(writer.sizeOf(new Version1(7)));
+    writer.serialize(new Version1(7), buffer);
+    buffer.flip();
+
+    System.setProperty(Pickler.Compatibility.COMPATIBILITY_SYSTEM_PROPERTY, Pickler.Compatibility.BACKWARDS.name());
+    try {
+      final Pickler<Version2> reader = Companion.manufactureRecordPickler(Version2.class);
+      assertEquals(new Version2(7, "none"), reader.deserialize(buffer));
+    } finally {
+      System.clearProperty(Pickler.Compatibility.COMPATIBILITY_SYSTEM_PROPERTY);
+    }
+    assertEquals(1, Pickler.metrics(Version2.class).getFallbackConstructorHits());
+  }
+}
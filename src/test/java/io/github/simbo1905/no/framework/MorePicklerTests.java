@@ -409,4 +409,51 @@ public class MorePicklerTests {
     assertEquals(original.Д(), deserialized.Д());
     assertEquals(0, buffer.remaining(), "Buffer should be fully consumed");
   }
+
+  record ColdStart(String name, long[] values) {
+  }
+
+  @Test
+  void testConcurrentCreationSharesOnePickler() throws Exception {
+    final int threads = 16;
+    final var ready = new java.util.concurrent.CyclicBarrier(threads);
+    try (var executor = java.util.concurrent.Executors.newFixedThreadPool(threads)) {
+      final var futures = IntStream.range(0, threads)
+          .mapToObj(i -> executor.submit(() -> {
+            ready.await();
+            return Pickler.forRecord(ColdStart.class);
+          }))
+          .toList();
+      final Pickler<ColdStart> first = futures.getFirst().get();
+      for (var future : futures) {
+        assertSame(first, future.get(), "Every caller should receive the pickler built by the first caller");
+      }
+    }
+  }
+
+  record Tiered(int id, String name) {
+  }
+
+  @Test
+  void testTieredPicklerAdaptsHandlesOnceHot() {
+    final var pickler = (RecordPickler<Tiered>) Companion.manufactureRecordPickler(Tiered.class, 3);
+    assertFalse(pickler.promoted());
+    final var original = new Tiered(1, "one");
+    final var buffer = ByteBuffer.allocate(64);
+    pickler.serialize(original, buffer);
+    buffer.flip();
+    assertEquals(original, pickler.deserialize(buffer));
+    assertFalse(pickler.promoted());
+
+    buffer.clear();
+    pickler.serialize(original, buffer);
+    assertTrue(pickler.promoted());
+    buffer.flip();
+    assertEquals(original, pickler.deserialize(buffer));
+  }
+
+  @Test
+  void testPicklerAdaptsHandlesWhenCreatedByDefault() {
+    assertTrue(((RecordPickler<ColdStart>) Pickler.forRecord(ColdStart.class)).promoted());
+  }
 }
@@ -571,6 +571,81 @@ class PicklerTest {
     assertEquals("operation successful", receivedResponse.payload());
   }
 
+  /// Tests that records without components decode to a shared canonical instance
+  @Test
+  void testComponentlessRecordsDecodeToCanonicalInstance() {
+    Pickler<StackCommand> commandPickler = Pickler.forSealedInterface(StackCommand.class);
+
+    // Write two pops and a peek into the same buffer
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+    commandPickler.serialize(new Pop(), buffer);
+    commandPickler.serialize(new Pop(), buffer);
+    commandPickler.serialize(new Peek(), buffer);
+    buffer.flip();
+
+    // Each decode of the same type returns the identical instance
+    StackCommand first = commandPickler.deserialize(buffer);
+    StackCommand second = commandPickler.deserialize(buffer);
+    StackCommand peek = commandPickler.deserialize(buffer);
+    assertEquals(new Pop(), first);
+    assertSame(first, second);
+    assertEquals(new Peek(), peek);
+
+    // The same holds for a record pickler used directly
+    Pickler<Peek> peekPickler = Pickler.forRecord(Peek.class);
+    ByteBuffer peekBuffer = ByteBuffer.allocate(peekPickler.sizeOf(new Peek()) * 2);
+    peekPickler.serialize(new Peek(), peekBuffer);
+    peekPickler.serialize(new Peek(), peekBuffer);
+    peekBuffer.flip();
+    assertSame(peekPickler.deserialize(peekBuffer), peekPickler.deserialize(peekBuffer));
+  }
+
+  @Test
+  void testSealedPicklerSharesRecordPicklers() {
+    Pickler<StackCommand> commandPickler = Pickler.forSealedInterface(StackCommand.class);
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+    commandPickler.serialize(new Pop(), buffer);
+    buffer.flip();
+
+    // The sealed pickler delegates to the registered record pickler so they decode to the same canonical instance
+    Pickler<Pop> popPickler = Pickler.forRecord(Pop.class);
+    ByteBuffer popBuffer = ByteBuffer.allocate(popPickler.sizeOf(new Pop()));
+    popPickler.serialize(new Pop(), popBuffer);
+    popBuffer.flip();
+    assertSame(popPickler.deserialize(popBuffer), commandPickler.deserialize(buffer));
+  }
+
+  sealed interface Lazily permits UsedLazily, UnusedLazily {
+  }
+
+  record UsedLazily(int value) implements Lazily {
+  }
+
+  record UnusedLazily(int value) implements Lazily {
+  }
+
+  @Test
+  void testSealedPicklerCreatesRecordPicklersOnFirstUse() {
+    Pickler<Lazily> pickler = Pickler.forSealedInterface(Lazily.class);
+    assertFalse(Companion.REGISTERED.contains(UsedLazily.class));
+
+    ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(new UsedLazily(1)));
+    pickler.serialize(new UsedLazily(1), buffer);
+    buffer.flip();
+    assertEquals(new UsedLazily(1), pickler.deserialize(buffer));
+    assertTrue(Companion.REGISTERED.contains(UsedLazily.class));
+    assertFalse(Companion.REGISTERED.contains(UnusedLazily.class));
+  }
+
+  @Test
+  void testCommonPrefixLength() {
+    assertEquals(0, SealedPickler.commonPrefixLength(new String[0]));
+    assertEquals(5, SealedPickler.commonPrefixLength(new String[]{"a.b.C"}));
+    assertEquals(4, SealedPickler.commonPrefixLength(new String[]{"a.b.Cat", "a.b.Dog", "a.b.Cow"}));
+    assertEquals(0, SealedPickler.commonPrefixLength(new String[]{"a.Cat", "b.Dog"}));
+    assertEquals(3, SealedPickler.commonPrefixLength(new String[]{"a.Cat", "a.Ca", "a.Cb"}));
+  }
+
   static StringBuilder stripOutAsciiStrings(byte[] bytes) {
     StringBuilder escapedSearchString = new StringBuilder();
 
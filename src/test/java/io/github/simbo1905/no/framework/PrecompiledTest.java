@@ -0,0 +1,104 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests that build time generated accessors registered with `ServiceLoader` are used by the record pickler.
+/// The provider below is written by hand in the shape that the annotation processor generates and is
+/// registered in `src/test/resources/META-INF/services`.
+class PrecompiledTest {
+
+  record Point(int x, int y, List<String> labels) {
+  }
+
+  /// Structurally identical to [Point] but has no precompiled provider so it uses the reflective path.
+  record ReflectedPoint(int x, int y, List<String> labels) {
+  }
+
+  public static final class PointPrecompiled implements Pickler.Precompiled<Point> {
+    static final AtomicInteger NEW_INSTANCE_CALLS = new AtomicInteger();
+
+    @Override
+    public Class<Point> recordClass() {
+      return Point.class;
+    }
+
+    @Override
+    public int componentCount() {
+      return 3;
+    }
+
+    @Override
+    public int[] constructorArities() {
+      return new int[]{3};
+    }
+
+    @Override
+    public Object component(Point record, int index) {
+      return switch (index) {
+        case 0 -> record.x();
+        case 1 -> record.y();
+        case 2 -> record.labels();
+        default -> throw new IndexOutOfBoundsException(index);
+      };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Point newInstance(Object[] components) {
+      NEW_INSTANCE_CALLS.incrementAndGet();
+      return switch (components.length) {
+        case 3 -> new Point((int) components[0], (int) components[1], (List<String>) components[2]);
+        default -> throw new IllegalArgumentException("No constructor with " + components.length + " parameters");
+      };
+    }
+  }
+
+  @Test
+  void testPrecompiledProviderIsDiscovered() {
+    assertInstanceOf(PointPrecompiled.class, Companion.PRECOMPILED.get(Point.class).orElseThrow());
+    assertTrue(Companion.PRECOMPILED.get(ReflectedPoint.class).isEmpty());
+  }
+
+  @Test
+  void testPrecompiledRoundTrip() {
+    final var original = new Point(1, 2, List.of("a", "b"));
+    final Pickler<Point> pickler = Pickler.forRecord(Point.class);
+
+    final var buffer = ByteBuffer.allocate(pickler.sizeOf(original));
+    pickler.serialize(original, buffer);
+    buffer.flip();
+
+    final int callsBefore = PointPrecompiled.NEW_INSTANCE_CALLS.get();
+    assertEquals(original, pickler.deserialize(buffer));
+    assertEquals(callsBefore + 1, PointPrecompiled.NEW_INSTANCE_CALLS.get());
+    assertEquals(buffer.limit(), buffer.position());
+  }
+
+  @Test
+  void testPrecompiledIsWireCompatibleWithReflection() {
+    final Pickler<Point> precompiled = Pickler.forRecord(Point.class);
+    final Pickler<ReflectedPoint> reflected = Pickler.forRecord(ReflectedPoint.class);
+
+    final var precompiledBuffer = ByteBuffer.allocate(1024);
+    precompiled.serialize(new Point(3, 4, List.of("c")), precompiledBuffer);
+    final var reflectedBuffer = ByteBuffer.allocate(1024);
+    reflected.serialize(new ReflectedPoint(3, 4, List.of("c")), reflectedBuffer);
+
+    assertArrayEquals(
+        Arrays.copyOf(reflectedBuffer.array(), reflectedBuffer.position()),
+        Arrays.copyOf(precompiledBuffer.array(), precompiledBuffer.position()));
+
+    // Bytes written by the reflective pickler are read by the precompiled one
+    reflectedBuffer.flip();
+    assertEquals(new Point(3, 4, List.of("c")), precompiled.deserialize(reflectedBuffer));
+  }
+}
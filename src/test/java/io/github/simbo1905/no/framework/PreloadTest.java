@@ -0,0 +1,66 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import io.github.simbo1905.no.framework.tree.InternalNode;
+import io.github.simbo1905.no.framework.tree.LeafNode;
+import io.github.simbo1905.no.framework.tree.TreeNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests for creating picklers at boot with [Pickler#preload(java.util.Collection)] and the preload manifest.
+class PreloadTest {
+
+  enum Channel {WEB, MOBILE}
+
+  record Address(String street, Optional<String> postcode) {
+  }
+
+  sealed interface Event permits Opened, Closed {
+  }
+
+  record Opened(UUID id, Channel channel, Address address, List<String> tags, Map<String, Integer> counts,
+                double[] scores, Integer retries) implements Event {
+  }
+
+  record Closed(UUID id, long at) implements Event {
+  }
+
+  record Unlisted(String name) {
+  }
+
+  @Test
+  void testPreloadCreatesAndWarmsPermittedRecords() {
+    Pickler.preload(List.of(Event.class, TreeNode.class));
+
+    assertTrue(Companion.REGISTERED.containsAll(List.of(Event.class, Opened.class, Closed.class,
+        TreeNode.class, InternalNode.class, LeafNode.class)));
+  }
+
+  @Test
+  void testManifestRoundTrip() throws IOException {
+    Pickler.forRecord(Unlisted.class);
+    final StringWriter manifest = new StringWriter();
+    Pickler.writeManifest(manifest);
+    assertTrue(manifest.toString().startsWith("#"));
+
+    final List<Class<?>> types = Pickler.readManifest(
+        new StringReader(manifest + "\n  \ncom.example.RemovedRecord\n"), PreloadTest.class.getClassLoader());
+    assertTrue(types.contains(Unlisted.class));
+    assertEquals(manifest.toString().lines().count() - 1, types.size(), "The unknown name should be skipped");
+  }
+
+  @Test
+  void testPreloadRejectsUnsupportedType() {
+    assertThrows(IllegalArgumentException.class, () -> Pickler.preload(List.of(String.class)));
+  }
+}
@@ -0,0 +1,166 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import io.github.simbo1905.no.framework.animal.Animal;
+import io.github.simbo1905.no.framework.tree.InternalNode;
+import io.github.simbo1905.no.framework.tree.LeafNode;
+import io.github.simbo1905.no.framework.tree.TreeNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.RecordComponent;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests for decoding messages from fragments with [Pickler.ResumableDecoder].
+class ResumableDecoderTest {
+
+  public enum Colour {RED, GREEN}
+
+  public record Inner(long id, Colour colour) {
+  }
+
+  public record Everything(int number, String text, Optional<String> note, List<Integer> list, Map<String, Long> map,
+                           Colour colour, byte[] bytes, double[] doubles, UUID uuid, Inner inner, Inner[] inners,
+                           char letter, short small, float ratio, boolean flag, byte tiny) {
+  }
+
+  public record Blob(String name, byte[] data) {
+  }
+
+  public record Counted(List<Integer> list, Map<String, Long> map) {
+  }
+
+  static <T> byte[] pickle(Pickler<T> pickler, T value) {
+    final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(value));
+    pickler.serialize(value, buffer);
+    return Arrays.copyOf(buffer.array(), buffer.position());
+  }
+
+  /// Feeds the bytes in fragments of random sizes up to the bound and collects the messages.
+  static <T> List<T> decode(Pickler.ResumableDecoder<T> decoder, byte[] bytes, int bound, long seed) {
+    final var random = new SplittableRandom(seed);
+    final List<T> messages = new ArrayList<>();
+    int position = 0;
+    while (position < bytes.length) {
+      final int length = Math.min(bytes.length - position, random.nextInt(1, bound + 1));
+      final ByteBuffer fragment = ByteBuffer.wrap(bytes, position, length);
+      while (fragment.hasRemaining()) {
+        decoder.decode(fragment).ifPresent(messages::add);
+      }
+      position += length;
+    }
+    return messages;
+  }
+
+  @Test
+  void testEveryTypeResumesFromAnyByte() {
+    final Pickler<Everything> pickler = Pickler.forRecord(Everything.class);
+    final List<Everything> values = Pickler.Samples.withSeed(9).stream(Everything.class).limit(40).toList();
+    final var out = new ByteArrayOutputStream();
+    values.forEach(value -> out.writeBytes(pickle(pickler, value)));
+
+    for (int bound : new int[]{1, 3, 17, 1000}) {
+      final var decoder = Pickler.ResumableDecoder.of(Everything.class);
+      final List<Everything> decoded = decode(decoder, out.toByteArray(), bound, bound);
+      assertFalse(decoder.partial());
+      assertEquals(values.size(), decoded.size());
+      for (int i = 0; i < values.size(); i++) {
+        assertDeepEquals(values.get(i), decoded.get(i));
+      }
+    }
+  }
+
+  /// The records hold arrays so compare their components.
+  static void assertDeepEquals(Record expected, Record actual) {
+    for (RecordComponent component : expected.getClass().getRecordComponents()) {
+      try {
+        final Object e = component.getAccessor().invoke(expected);
+        final Object a = component.getAccessor().invoke(actual);
+        assertTrue(Objects.deepEquals(e, a), component.getName() + ": " + e + " != " + a);
+      } catch (ReflectiveOperationException ex) {
+        throw new AssertionError(ex);
+      }
+    }
+  }
+
+  @Test
+  void testSealedMessagesReferBackToClassNames() {
+    final Pickler<TreeNode> pickler = Pickler.forSealedInterface(TreeNode.class);
+    final TreeNode tree = new InternalNode("root", new LeafNode(1),
+        new InternalNode("b", new LeafNode(2), new InternalNode("c", null, new LeafNode(3))));
+    final byte[] bytes = pickle(pickler, tree);
+
+    final var decoder = Pickler.ResumableDecoder.of(TreeNode.class);
+    assertEquals(List.of(tree, tree), decode(decoder, concat(bytes, bytes), 1, 0));
+
+    final Pickler<Animal> animals = Pickler.forSealedInterface(Animal.class);
+    final List<Animal> sample = Pickler.Samples.withSeed(4).stream(Animal.class).limit(100).toList();
+    final var out = new ByteArrayOutputStream();
+    sample.forEach(animal -> out.writeBytes(pickle(animals, animal)));
+    assertEquals(sample, decode(Pickler.ResumableDecoder.of(Animal.class), out.toByteArray(), 50, 1));
+  }
+
+  @Test
+  void testLargeArraysFillInPlace() {
+    final Pickler<Blob> pickler = Pickler.forRecord(Blob.class);
+    final byte[] data = new byte[4 * 1024 * 1024];
+    new SplittableRandom(2).nextBytes(data);
+    final byte[] bytes = pickle(pickler, new Blob("large", data));
+
+    final var decoder = Pickler.ResumableDecoder.of(Blob.class);
+    final ByteBuffer fragment = ByteBuffer.wrap(bytes, 0, 64 * 1024);
+    assertTrue(decoder.decode(fragment).isEmpty());
+    assertTrue(decoder.partial());
+    final Blob blob = decode(decoder, Arrays.copyOfRange(bytes, 64 * 1024, bytes.length), 64 * 1024, 3).getFirst();
+    assertEquals("large", blob.name());
+    assertArrayEquals(data, blob.data());
+  }
+
+  @Test
+  void testResetDiscardsAPartialMessage() {
+    final Pickler<Blob> pickler = Pickler.forRecord(Blob.class);
+    final byte[] bytes = pickle(pickler, new Blob("x", new byte[]{1, 2, 3}));
+    final var decoder = Pickler.ResumableDecoder.of(Blob.class);
+    assertTrue(decoder.decode(ByteBuffer.wrap(bytes, 0, 5)).isEmpty());
+    decoder.reset();
+    assertFalse(decoder.partial());
+    assertEquals("x", decoder.decode(ByteBuffer.wrap(bytes)).orElseThrow().name());
+  }
+
+  @Test
+  void testInvalidMessages() {
+    final var decoder = Pickler.ResumableDecoder.of(TreeNode.class);
+    final ByteBuffer unknown = ByteBuffer.allocate(16).putInt(3).put("Foo".getBytes()).flip();
+    assertThrows(IllegalArgumentException.class, () -> decoder.decode(unknown));
+
+    final var nulls = Pickler.ResumableDecoder.of(TreeNode.class);
+    final ByteBuffer nullMessage = ByteBuffer.allocate(16);
+    Pickler.forSealedInterface(TreeNode.class).serialize(null, nullMessage);
+    assertThrows(IllegalArgumentException.class, () -> nulls.decode(nullMessage.putInt(0).flip()));
+
+    assertThrows(IllegalArgumentException.class, () -> Pickler.ResumableDecoder.of(String.class));
+
+    final ByteBuffer negativeList = ByteBuffer.allocate(6).put((byte) 2).put(Constants.LIST.marker()).putInt(-1).flip();
+    assertThrows(IllegalArgumentException.class, () -> Pickler.ResumableDecoder.of(Counted.class).decode(negativeList));
+    final ByteBuffer negativeMap = ByteBuffer.allocate(7).put((byte) 2).put(Constants.NULL.marker())
+        .put(Constants.MAP.marker()).putInt(-1).flip();
+    assertThrows(IllegalArgumentException.class, () -> Pickler.ResumableDecoder.of(Counted.class).decode(negativeMap));
+  }
+
+  static byte[] concat(byte[] first, byte[] second) {
+    final byte[] both = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, both, first.length, second.length);
+    return both;
+  }
+}
@@ -0,0 +1,119 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import io.github.simbo1905.no.framework.animal.Animal;
+import io.github.simbo1905.no.framework.protocol.Pop;
+import io.github.simbo1905.no.framework.protocol.StackCommand;
+import io.github.simbo1905.no.framework.protocol.StackResponse;
+import io.github.simbo1905.no.framework.tree.InternalNode;
+import io.github.simbo1905.no.framework.tree.TreeNode;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests for generating instances with [Pickler.Samples].
+class SamplesTest {
+
+  enum Colour {RED, GREEN, BLUE}
+
+  record Everything(byte b, short s, char c, int i, long l, float f, double d, boolean z, Integer boxed,
+                    String text, UUID id, Colour colour, Optional<String> note, List<List<Integer>> matrix,
+                    Map<String, Pop> commands, int[] ints, String[] strings, List<Animal> animals) {
+  }
+
+  record Unsupported(Object value) {
+  }
+
+  static <T> byte[] bytes(Pickler<T> pickler, T value) {
+    final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(value));
+    pickler.serialize(value, buffer);
+    return buffer.array();
+  }
+
+  @Test
+  void testSameSeedGeneratesSameSamples() {
+    final Pickler<Everything> pickler = Pickler.forRecord(Everything.class);
+    final List<Everything> first = Pickler.Samples.withSeed(42).stream(Everything.class).limit(20).toList();
+    final List<Everything> second = Pickler.Samples.withSeed(42).stream(Everything.class).limit(20).toList();
+    final List<Everything> other = Pickler.Samples.withSeed(43).stream(Everything.class).limit(20).toList();
+    for (int i = 0; i < first.size(); i++) {
+      assertArrayEquals(bytes(pickler, first.get(i)), bytes(pickler, second.get(i)));
+    }
+    assertFalse(Arrays.equals(bytes(pickler, first.getFirst()), bytes(pickler, other.getFirst())));
+  }
+
+  @Test
+  void testGeneratedSamplesRoundTrip() {
+    roundTrip(Everything.class, Pickler.forRecord(Everything.class));
+    roundTrip(Animal.class, Pickler.forSealedInterface(Animal.class));
+    roundTrip(TreeNode.class, Pickler.forSealedInterface(TreeNode.class));
+    roundTrip(StackCommand.class, Pickler.forSealedInterface(StackCommand.class));
+    roundTrip(StackResponse.class, Pickler.forSealedInterface(StackResponse.class));
+  }
+
+  static <T> void roundTrip(Class<T> type, Pickler<T> pickler) {
+    Pickler.Samples.withSeed(7).stream(type).limit(200).forEach(sample -> {
+      final T decoded = pickler.deserialize(ByteBuffer.wrap(bytes(pickler, sample)));
+      assertTrue(deepEquals(sample, decoded), () -> "Round trip of " + sample);
+    });
+  }
+
+  /// Records use reference equality for array components and decoded maps may iterate in a different order so the
+  /// values are compared structurally.
+  static boolean deepEquals(Object expected, Object actual) {
+    if (expected instanceof Record record && actual != null && record.getClass() == actual.getClass()) {
+      return Arrays.stream(record.getClass().getRecordComponents()).allMatch(component -> {
+        try {
+          return deepEquals(component.getAccessor().invoke(expected), component.getAccessor().invoke(actual));
+        } catch (ReflectiveOperationException e) {
+          throw new AssertionError(e);
+        }
+      });
+    } else if (expected != null && expected.getClass().isArray() && actual != null && actual.getClass().isArray()) {
+      return Array.getLength(expected) == Array.getLength(actual) &&
+          IntStream.range(0, Array.getLength(expected))
+              .allMatch(i -> deepEquals(Array.get(expected, i), Array.get(actual, i)));
+    } else if (expected instanceof List<?> list && actual instanceof List<?> other) {
+      return list.size() == other.size() &&
+          IntStream.range(0, list.size()).allMatch(i -> deepEquals(list.get(i), other.get(i)));
+    } else if (expected instanceof Map<?, ?> map && actual instanceof Map<?, ?> other) {
+      return map.size() == other.size() &&
+          map.entrySet().stream().allMatch(e -> other.containsKey(e.getKey()) && deepEquals(e.getValue(), other.get(e.getKey())));
+    } else if (expected instanceof Optional<?> optional && actual instanceof Optional<?> other) {
+      return deepEquals(optional.orElse(null), other.orElse(null));
+    }
+    return Objects.equals(expected, actual);
+  }
+
+  @Test
+  void testSizesAndDepthAreBounded() {
+    Pickler.Samples.withSeed(3).withMaxSize(2).stream(Everything.class).limit(100).forEach(sample -> {
+      assertTrue(sample.text().length() <= 2);
+      assertTrue(sample.matrix().size() <= 2);
+      sample.matrix().forEach(row -> assertTrue(row.size() <= 2));
+      assertTrue(sample.commands().size() <= 2);
+      assertTrue(sample.ints().length <= 2);
+    });
+    Pickler.Samples.withSeed(3).withMaxDepth(3).stream(TreeNode.class).limit(100)
+        .forEach(tree -> assertTrue(depth(tree) <= 3, () -> "Depth of " + tree));
+  }
+
+  static int depth(TreeNode node) {
+    return node instanceof InternalNode(String ignored, TreeNode left, TreeNode right) ?
+        1 + Math.max(depth(left), depth(right)) : node == null ? 0 : 1;
+  }
+
+  @Test
+  void testUnsupportedTypesAreRejected() {
+    final Pickler.Samples samples = Pickler.Samples.withSeed(1);
+    assertThrows(IllegalArgumentException.class, () -> samples.sample(String.class));
+    assertThrows(IllegalArgumentException.class, () -> samples.sample(Unsupported.class));
+    assertThrows(IllegalArgumentException.class, () -> samples.withMaxSize(-1));
+  }
+}
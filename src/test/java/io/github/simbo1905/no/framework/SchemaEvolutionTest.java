@@ -8,6 +8,7 @@ import javax.tools.*;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.RecordComponent;
@@ -264,6 +265,38 @@ public class SchemaEvolutionTest {
         "Exception should be related to schema evolution or constructor mismatch");
   }
 
+  /// Tests that pickling a record does not pin its class loader. A host that redeploys plugins discards the loader
+  /// and expects the classes and their picklers to be unloaded.
+  @Test
+  void testRegistryDoesNotPinClassLoader() throws Exception {
+    final WeakReference<ClassLoader> loader = roundTripInDiscardedLoader();
+    for (int attempt = 0; attempt < 50 && loader.get() != null; attempt++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+    assertNull(loader.get(), "The class loader should be collectable once the application drops it");
+  }
+
+  private WeakReference<ClassLoader> roundTripInDiscardedLoader() throws Exception {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    InMemoryFileManager fileManager = new InMemoryFileManager(
+        compiler.getStandardFileManager(diagnostics, null, null));
+    JavaCompiler.CompilationTask task = compiler.getTask(
+        null, fileManager, diagnostics, null, null, List.of(new InMemorySourceFile(CLASS_NAME, ORIGINAL_SCHEMA)));
+    if (!task.call()) {
+      throwCompilationError(diagnostics);
+    }
+    InMemoryClassLoader classLoader = new InMemoryClassLoader(
+        SchemaEvolutionTest.class.getClassLoader(),
+        Map.of(CLASS_NAME, fileManager.getClassBytes(CLASS_NAME)));
+    Class<?> recordClass = classLoader.loadClass(CLASS_NAME);
+    Object instance = createRecordInstance(recordClass, new Object[]{7});
+    byte[] bytes = serializeRecord(instance);
+    // compare bytes so that the assertion itself does not hold on to the record class
+    assertArrayEquals(bytes, serializeRecord(deserializeRecord(recordClass, bytes)));
+    return new WeakReference<>(classLoader);
+  }
+
   /// Throws a runtime exception with compilation error details.
   ///
   /// @param diagnostics The compilation diagnostics
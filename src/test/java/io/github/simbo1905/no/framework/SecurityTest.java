@@ -46,6 +46,28 @@ class SecurityTest {
     // Ensure it's not a record
   }
 
+  /// Record with a primitive component for the component type confusion test
+  record Counter(int count) {
+  }
+
+  @Test
+  void testComponentTypeConfusionAttack() {
+    // 1. Serialize a record with an int component
+    final Pickler<Counter> pickler = Pickler.forRecord(Counter.class);
+    final var original = new Counter(42);
+    final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(original));
+    pickler.serialize(original, buffer);
+    buffer.flip();
+
+    // 2. The format is: [componentCount (byte)] [typeMarker (byte)] [int value]
+    // Replace the INTEGER marker with the FLOAT marker which has the same width on the wire
+    buffer.put(1, Constants.FLOAT.marker());
+
+    // 3. Assert that the constructor rejects the wrongly typed component
+    assertThrows(IllegalArgumentException.class, () -> pickler.deserialize(buffer),
+        "Deserialization should fail when a component does not match the constructor parameter type");
+  }
+
   @Test
   void testSealedTraitNotRecordAttack() {
     // 1. Get Pickler for the sealed trait
@@ -0,0 +1,186 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.lang.reflect.RecordComponent;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Reports the encoded size of a corpus of representative records against Java serialization and against the raw
+/// information, which is the bytes of the primitive values and strings with no structure. It fails when a pickled size
+/// grows more than [#THRESHOLD] over the size recorded in `size-corpus.properties`. When a change makes the encoding
+/// smaller update the recorded sizes so that the saving is kept.
+///
+/// The corpus records implement [Serializable] so that Java serialization can be measured on the same values.
+class SizeCorpusTest {
+
+  static final double THRESHOLD = 0.02;
+
+  static final String RECORDED_SIZES = "/size-corpus.properties";
+
+  sealed interface Node extends Serializable permits Branch, Leaf {
+  }
+
+  record Branch(String name, Node left, Node right) implements Node {
+  }
+
+  record Leaf(int value) implements Node {
+  }
+
+  record Tree(Node root) implements Serializable {
+  }
+
+  /// As in `LinkedListNodeDemo`
+  record LinkedListNode(int value, LinkedListNode next) implements Serializable {
+  }
+
+  record Inventory(String warehouse, Map<String, Integer> stock) implements Serializable {
+  }
+
+  record Readings(int[] counts, double[] values, String[] labels, boolean[] flags) implements Serializable {
+  }
+
+  enum Tier {FREE, PRO, ENTERPRISE}
+
+  record Customer(UUID id, String name, String email, Tier tier, List<String> tags, long createdAt)
+      implements Serializable {
+  }
+
+  record Customers(List<Customer> customers) implements Serializable {
+  }
+
+  sealed interface Command extends Serializable permits Push, Pop, Peek {
+  }
+
+  record Push(String item) implements Command {
+  }
+
+  record Pop() implements Command {
+  }
+
+  record Peek() implements Command {
+  }
+
+  /// The corpus in the order it is reported. Every value is fixed so that sizes only change with the encoding.
+  static Map<String, Object> corpus() {
+    final Map<String, Object> corpus = new LinkedHashMap<>();
+    corpus.put("tree", new Tree(tree(8, new int[]{0})));
+    LinkedListNode list = null;
+    for (int i = 500; i > 0; i--) {
+      list = new LinkedListNode(i, list);
+    }
+    corpus.put("linkedList", list);
+    final Map<String, Integer> stock = new LinkedHashMap<>();
+    IntStream.range(0, 200).forEach(i -> stock.put("sku-" + i, i * 7));
+    corpus.put("map", new Inventory("north", stock));
+    corpus.put("arrays", new Readings(
+        IntStream.range(0, 256).toArray(),
+        IntStream.range(0, 256).mapToDouble(i -> i / 4.0).toArray(),
+        IntStream.range(0, 64).mapToObj(i -> "label" + i).toArray(String[]::new),
+        new boolean[]{true, false, true, true, false}));
+    corpus.put("records", new Customers(IntStream.range(0, 50).mapToObj(i -> new Customer(
+        new UUID(i, i * 31L), "Customer " + i, i % 3 == 0 ? null : "customer" + i + "@example.com",
+        Tier.values()[i % 3], List.of("tag" + i % 5, "region" + i % 7), 1_700_000_000_000L + i)).toList()));
+    corpus.put("protocol", IntStream.range(0, 100).mapToObj(i -> switch (i % 3) {
+      case 0 -> new Push("item" + i);
+      case 1 -> new Pop();
+      default -> new Peek();
+    }).toList());
+    return corpus;
+  }
+
+  static Node tree(int depth, int[] next) {
+    return depth == 0 ? new Leaf(next[0]++) : new Branch("n" + depth, tree(depth - 1, next), tree(depth - 1, next));
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static int pickledSize(Object value) {
+    if (value instanceof List<?> messages) {
+      // a protocol is a stream of messages written back to back
+      final Pickler<Command> pickler = Pickler.forSealedInterface(Command.class);
+      final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+      messages.forEach(message -> pickler.serialize((Command) message, buffer));
+      return buffer.position();
+    }
+    final Pickler pickler = Pickler.forRecord((Class<Record>) value.getClass());
+    // sizeOf is an upper bound as repeated class names are written as back references
+    final ByteBuffer buffer = ByteBuffer.allocate(pickler.sizeOf(value));
+    pickler.serialize(value, buffer);
+    return buffer.position();
+  }
+
+  static int javaSerializedSize(Object value) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(value instanceof List<?> list ? new ArrayList<>(list) : value);
+    }
+    return bytes.size();
+  }
+
+  /// The bytes of the values without any framing, types or lengths.
+  static int rawSize(Object value) {
+    return switch (value) {
+      case null -> 0;
+      case Boolean ignored -> 1;
+      case Byte ignored -> Byte.BYTES;
+      case Short ignored -> Short.BYTES;
+      case Character ignored -> Character.BYTES;
+      case Integer ignored -> Integer.BYTES;
+      case Long ignored -> Long.BYTES;
+      case Float ignored -> Float.BYTES;
+      case Double ignored -> Double.BYTES;
+      case String s -> s.getBytes(StandardCharsets.UTF_8).length;
+      case UUID ignored -> 2 * Long.BYTES;
+      case Enum<?> ignored -> 1;
+      case Collection<?> c -> c.stream().mapToInt(SizeCorpusTest::rawSize).sum();
+      case Map<?, ?> m -> m.entrySet().stream().mapToInt(e -> rawSize(e.getKey()) + rawSize(e.getValue())).sum();
+      case Record r -> Arrays.stream(r.getClass().getRecordComponents()).mapToInt(c -> rawSize(component(r, c))).sum();
+      default -> value.getClass().isArray() ?
+          IntStream.range(0, Array.getLength(value)).map(i -> rawSize(Array.get(value, i))).sum() : fail("Unexpected " + value);
+    };
+  }
+
+  static Object component(Record record, RecordComponent component) {
+    try {
+      return component.getAccessor().invoke(record);
+    } catch (ReflectiveOperationException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  @Test
+  void testSizesDoNotRegress() throws IOException {
+    final Properties recorded = new Properties();
+    try (InputStream in = SizeCorpusTest.class.getResourceAsStream(RECORDED_SIZES)) {
+      assertNotNull(in, RECORDED_SIZES + " should be on the test classpath");
+      recorded.load(in);
+    }
+    final List<String> failures = new ArrayList<>();
+    System.out.printf("%-12s %10s %10s %10s %8s %8s%n", "corpus", "raw", "pickler", "java", "vs raw", "vs java");
+    for (var entry : corpus().entrySet()) {
+      final String name = entry.getKey();
+      final int raw = rawSize(entry.getValue());
+      final int pickled = pickledSize(entry.getValue());
+      final int java = javaSerializedSize(entry.getValue());
+      System.out.printf("%-12s %10d %10d %10d %8.2f %8.2f%n", name, raw, pickled, java,
+          (double) pickled / raw, (double) pickled / java);
+      final String expected = recorded.getProperty(name);
+      if (expected == null) {
+        failures.add("No recorded size so add " + name + "=" + pickled + " to " + RECORDED_SIZES);
+      } else if (pickled > Integer.parseInt(expected) * (1 + THRESHOLD)) {
+        failures.add(name + " grew to " + pickled + " bytes from the recorded " + expected);
+      } else if (pickled < Integer.parseInt(expected)) {
+        System.out.printf("%s shrank to %d bytes from the recorded %s so update %s%n", name, pickled, expected, RECORDED_SIZES);
+      }
+    }
+    assertTrue(failures.isEmpty(), () -> String.join("\n", failures));
+  }
+}
@@ -0,0 +1,126 @@
+// SPDX-FileCopyrightText: 2025 Simon Massey
+// SPDX-License-Identifier: Apache-2.0
+package io.github.simbo1905.no.framework;
+
+import io.github.simbo1905.no.framework.animal.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tests for writing and reading many messages through [Pickler.MessageWriter] and [Pickler.MessageReader].
+class StreamTest {
+
+  record Line(int number, String text, List<String> words) {
+  }
+
+  static Line line(int number, int length) {
+    final String text = "w".repeat(length);
+    return new Line(number, text, List.of(text, "end"));
+  }
+
+  static <T> List<T> readAll(Pickler.MessageReader<T> reader) throws IOException {
+    final List<T> messages = new ArrayList<>();
+    for (Optional<T> message = reader.read(); message.isPresent(); message = reader.read()) {
+      messages.add(message.get());
+    }
+    return messages;
+  }
+
+  @Test
+  void testManyMessagesThroughSmallBuffers() throws IOException {
+    final Pickler<Line> pickler = Pickler.forRecord(Line.class);
+    final List<Line> lines = IntStream.range(0, 2000).mapToObj(i -> line(i, i % 40)).toList();
+
+    final var out = new ByteArrayOutputStream();
+    try (var writer = new ChannelMessageWriter<>(pickler, Channels.newChannel(out), 256)) {
+      for (Line line : lines) {
+        writer.write(line);
+      }
+    }
+
+    try (var reader = new ChannelMessageReader<>(pickler, Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), 16)) {
+      assertEquals(lines, readAll(reader));
+      assertTrue(reader.read().isEmpty());
+    }
+  }
+
+  @Test
+  void testMessageLargerThanTheBufferIsRejected() throws IOException {
+    final Pickler<Line> pickler = Pickler.forRecord(Line.class);
+    final var out = new ByteArrayOutputStream();
+    try (var writer = new ChannelMessageWriter<>(pickler, Channels.newChannel(out), 1024)) {
+      writer.write(line(1, 10));
+      assertThrows(IllegalArgumentException.class, () -> writer.write(line(2, 20_000)));
+      writer.write(line(3, 10));
+    }
+    assertEquals(List.of(line(1, 10), line(3, 10)), readAll(pickler.reader(new ByteArrayInputStream(out.toByteArray()))));
+  }
+
+  @Test
+  void testWriterWithABufferForTheLargestMessage() throws IOException {
+    final Pickler<Line> pickler = Pickler.forRecord(Line.class);
+    final List<Line> lines = List.of(line(1, 10), line(2, 20_000), line(3, 10));
+    final var out = new ByteArrayOutputStream();
+    try (var writer = pickler.writer(out, pickler.sizeOf(lines.get(1)))) {
+      for (Line line : lines) {
+        writer.write(line);
+      }
+    }
+    assertEquals(lines, readAll(pickler.reader(new ByteArrayInputStream(out.toByteArray()))));
+  }
+
+  @Test
+  void testSealedMessagesThroughAFile() throws IOException {
+    final Pickler<Animal> pickler = Pickler.forSealedInterface(Animal.class);
+    final List<Animal> animals = Pickler.Samples.withSeed(11).stream(Animal.class).limit(500).toList();
+    final Path file = Files.createTempFile("animals", ".bin");
+    try {
+      try (var writer = pickler.writer(FileChannel.open(file, StandardOpenOption.WRITE))) {
+        for (Animal animal : animals) {
+          writer.write(animal);
+        }
+      }
+      try (var reader = pickler.reader(FileChannel.open(file))) {
+        assertEquals(animals, readAll(reader));
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void testTruncatedStream() throws IOException {
+    final Pickler<Line> pickler = Pickler.forRecord(Line.class);
+    final var out = new ByteArrayOutputStream();
+    try (var writer = pickler.writer(out)) {
+      writer.write(line(1, 5));
+      writer.write(line(2, 5));
+    }
+    final byte[] bytes = out.toByteArray();
+    final var reader = pickler.reader(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3)));
+    assertEquals(line(1, 5), reader.read().orElseThrow());
+    assertThrows(EOFException.class, reader::read);
+  }
+
+  @Test
+  void testNullMessagesAreRejected() throws IOException {
+    try (var writer = Pickler.forSealedInterface(Animal.class).writer(new ByteArrayOutputStream())) {
+      assertThrows(NullPointerException.class, () -> writer.write(null));
+    }
+  }
+}